@@ -0,0 +1,106 @@
+package compiler.interpreter;
+
+import java.lang.management.*;
+
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Meritev alokacij pri izvajanju vmesne kode v drevesnem interpreterju.
+ * <p>
+ * Zanka z aritmetiko, primerjavo, branjem in pisanjem pomnilnika se izvede z
+ * metodama {@link Interpreter#exec(ImcStmt)} in
+ * {@link Interpreter#evalInt(ImcExpr)}, stevilo bajtov, ki jih pri tem alocira
+ * nit, pa se prebere iz {@link com.sun.management.ThreadMXBean}. Program
+ * izpise stevilo alociranih bajtov na operacijo in se konca z izhodno kodo 1,
+ * ce interpreter alocira ob operacijah. Ze en objekt na ponovitev zanke bi
+ * pomenil vec bajtov na operacijo; nekaj sto bajtov, ki jih med prvim
+ * merjenjem enkrat alocira prehod med nivoji prevajalnika JIT, pa ostane
+ * pod mejo {@link #LIMIT}.
+ * <p>
+ * Prevajanje in zagon (iz imenika {@code pins}):
+ *
+ * <pre>
+ * javac -d out -sourcepath src bench/compiler/interpreter/InterpreterAllocation.java
+ * java -cp out compiler.interpreter.InterpreterAllocation
+ * </pre>
+ */
+public class InterpreterAllocation {
+
+	/** Stevilo ponovitev zanke v enem merjenju. */
+	private static final int ITERATIONS = 1000000;
+
+	/** Stevilo merjenj za ogrevanje prevajalnika JIT. */
+	private static final int WARMUP = 20;
+
+	/** Najvecje dovoljeno stevilo alociranih bajtov na operacijo. */
+	private static final double LIMIT = 0.01;
+
+	/** Naslov spremenljivke v pomnilniku navideznega stroja. */
+	private static final int ADDRESS = 1024;
+
+	public static void main(String[] args) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		LinkedTEMP i = new LinkedTEMP(new FrmTemp(), 0);
+		LinkedTEMP acc = new LinkedTEMP(new FrmTemp(), 1);
+		ImcStmt[] body = loop(i, acc);
+
+		Interpreter interpreter = new Interpreter(null, new Machine());
+
+		// one iteration first, so that pages of memory and classes are not counted
+		run(interpreter, body, i, acc, 1, threads, thread);
+		long ops = (long) ITERATIONS * (body.length + 1);
+		double cold = (double) run(interpreter, body, i, acc, ITERATIONS, threads, thread) / ops;
+		for (int round = 0; round < WARMUP; round++)
+			run(interpreter, body, i, acc, ITERATIONS, threads, thread);
+		double warm = (double) run(interpreter, body, i, acc, ITERATIONS, threads, thread) / ops;
+
+		System.out.println("result:              " + interpreter.ldT(acc));
+		System.out.println("operations:          " + ops);
+		System.out.printf("bytes/op (cold):     %.4f%n", cold);
+		System.out.printf("bytes/op (warm):     %.4f%n", warm);
+		if ((cold >= LIMIT) || (warm >= LIMIT))
+			System.exit(1);
+	}
+
+	/**
+	 * Izvede zanko in vrne stevilo bajtov, ki jih je pri tem alocirala nit.
+	 *
+	 * @param iterations Stevilo ponovitev zanke.
+	 */
+	private static long run(Interpreter interpreter, ImcStmt[] body, LinkedTEMP i, LinkedTEMP acc, int iterations,
+			com.sun.management.ThreadMXBean threads, long thread) {
+		ImcExpr cond = new ImcBINOP(ImcBINOP.LTH, i, new ImcCONST(iterations));
+		interpreter.stT(i, 0);
+		interpreter.stT(acc, 0);
+
+		// the cost of reading the counter itself
+		long overhead = threads.getThreadAllocatedBytes(thread);
+		overhead = threads.getThreadAllocatedBytes(thread) - overhead;
+
+		long before = threads.getThreadAllocatedBytes(thread);
+		while (interpreter.evalInt(cond) != 0) {
+			for (ImcStmt stmt : body)
+				interpreter.exec(stmt);
+		}
+		return Math.max(threads.getThreadAllocatedBytes(thread) - before - overhead, 0);
+	}
+
+	/**
+	 * Sestavi telo zanke: acc = acc + i * 3; [ADDRESS] = acc;
+	 * acc = [ADDRESS] - i / 7; i = i + 1.
+	 */
+	private static ImcStmt[] loop(LinkedTEMP i, LinkedTEMP acc) {
+		ImcExpr address = new ImcBINOP(ImcBINOP.ADD, new ImcCONST(ADDRESS), new ImcCONST(4));
+		return new ImcStmt[] {
+				new ImcMOVE(acc, new ImcBINOP(ImcBINOP.ADD, acc,
+						new ImcBINOP(ImcBINOP.MUL, i, new ImcCONST(3)))),
+				new ImcMOVE(new ImcMEM(address), acc),
+				new ImcMOVE(acc, new ImcBINOP(ImcBINOP.SUB, new ImcMEM(address),
+						new ImcBINOP(ImcBINOP.DIV, i, new ImcCONST(7)))),
+				new ImcMOVE(i, new ImcBINOP(ImcBINOP.ADD, i, new ImcCONST(1))) };
+	}
+
+}
@@ -1,6 +1,17 @@
 package compiler;
 
+import compiler.interpreter.BytecodeInterpreter;
+import compiler.interpreter.ExecutionLimitException;
 import compiler.interpreter.Interpreter;
+import compiler.interpreter.Intrinsics;
+import compiler.interpreter.JvmInterpreter;
+import compiler.interpreter.MemoizingInterpreter;
+import compiler.interpreter.NodeInterpreter;
+import compiler.interpreter.OutputSink;
+import compiler.interpreter.ProfilingInterpreter;
+import compiler.interpreter.ProgramFile;
+import compiler.interpreter.TieredInterpreter;
+import compiler.optimizer.Optimizer;
 import compiler.lexan.*;
 import compiler.synan.*;
 import compiler.abstr.*;
@@ -9,6 +20,8 @@ import compiler.seman.*;
 import compiler.frames.*;
 import compiler.imcode.*;
 
+import java.io.*;
+
 /**
  * Osnovni razred prevajalnika, ki vodi izvajanje celotnega procesa prevajanja.
  * 
@@ -28,6 +41,30 @@ public class Main {
 	/** Doloca faze, v katerih se bodo izpisali vmesni rezultati. */
 	private static String dumpPhases = "imcode";
 
+	/** Seznam vseh izvajalnikov vmesne kode. */
+	private static String allEngines = "(tree|tiered|nodes|bytecode|jvm)";
+
+	/** Doloca izvajalnik vmesne kode. */
+	private static String engine = "tree";
+
+	/** Seznam vseh oblik prevedenega programa. */
+	private static String allFormats = "(pinsc)";
+
+	/** Doloca obliko, v kateri se zapise preveden program (null, ce se ne zapise). */
+	private static String emit = null;
+
+	/** Ali se meri profil izvajanja. */
+	private static boolean profile = false;
+
+	/** Ali se pomnijo rezultati cistih funkcij. */
+	private static boolean memoize = false;
+
+	/** Ali se vmesna koda optimizira. */
+	private static boolean optimize = false;
+
+	/** Ali se izpise statistika optimizacij. */
+	private static boolean stats = false;
+
 	/**
 	 * Metoda, ki izvede celotni proces prevajanja.
 	 * 
@@ -57,6 +94,67 @@ public class Main {
 						Report.warning("Illegal dump phases '" + phases + "' ignored.");
 					continue;
 				}
+				if (args[argc].startsWith("--engine=")) {
+					String engine = args[argc].substring("--engine=".length());
+					if (engine.matches(allEngines))
+						Main.engine = engine;
+					else
+						Report.warning("Unknown engine '" + engine + "' ignored.");
+					continue;
+				}
+				if (args[argc].startsWith("--emit=")) {
+					String format = args[argc].substring("--emit=".length());
+					if (format.matches(allFormats))
+						emit = format;
+					else
+						Report.warning("Unknown output format '" + format + "' ignored.");
+					continue;
+				}
+				if (args[argc].startsWith("--output=")) {
+					String fileName = args[argc].substring("--output=".length());
+					try {
+						Intrinsics.setOutput(new OutputSink(new FileOutputStream(fileName)));
+					} catch (FileNotFoundException __) {
+						Report.error("Cannot open output file '" + fileName + "'.");
+					}
+					continue;
+				}
+				if (args[argc].equals("--profile")) {
+					profile = true;
+					continue;
+				}
+				if (args[argc].equals("--memoize")) {
+					memoize = true;
+					continue;
+				}
+				if (args[argc].equals("--optimize")) {
+					optimize = true;
+					continue;
+				}
+				if (args[argc].equals("--stats")) {
+					stats = true;
+					continue;
+				}
+				if (args[argc].equals("--memcheck")) {
+					Interpreter.checkMemory = true;
+					continue;
+				}
+				if (args[argc].startsWith("--fuel=")) {
+					String fuel = args[argc].substring("--fuel=".length());
+					if (fuel.matches("[1-9][0-9]{0,17}"))
+						Interpreter.fuel = Long.parseLong(fuel);
+					else
+						Report.warning("Illegal fuel '" + fuel + "' ignored.");
+					continue;
+				}
+				if (args[argc].startsWith("--timeout=")) {
+					String timeout = args[argc].substring("--timeout=".length());
+					if (timeout.matches("[1-9][0-9]{0,11}"))
+						Interpreter.timeout = Long.parseLong(timeout);
+					else
+						Report.warning("Illegal timeout '" + timeout + "' ignored.");
+					continue;
+				}
 				// Neznano stikalo.
 				Report.warning("Unrecognized switch in the command line.");
 			} else {
@@ -75,40 +173,77 @@ public class Main {
 
 		// Izvajanje faz prevajanja.
 		while (true) {
-			// Leksikalna analiza.
-			LexAn lexAn = new LexAn(sourceFileName, dumpPhases.contains("lexan"));
-			if (execPhase.equals("lexan")) {
-				while (lexAn.lexAn().token != Token.EOF) {
+			ImcCodeGen imcodegen;
+			if (sourceFileName.endsWith(".pinsc")) {
+				// Ze preveden program.
+				imcodegen = new ImcCodeGen();
+				imcodegen.chunks = ProgramFile.read(sourceFileName);
+			} else {
+				// Leksikalna analiza.
+				LexAn lexAn = new LexAn(sourceFileName, dumpPhases.contains("lexan"));
+				if (execPhase.equals("lexan")) {
+					while (lexAn.lexAn().token != Token.EOF) {
+					}
+					break;
 				}
-				break;
+				// Sintaksna analiza.
+				SynAn synAn = new SynAn(lexAn, dumpPhases.contains("synan"));
+				AbsTree source = synAn.parse();
+				if (execPhase.equals("synan")) break;
+				// Abstraktna sintaksa.
+				Abstr ast = new Abstr(dumpPhases.contains("ast"));
+				ast.dump(source);
+				if (execPhase.equals("ast")) break;
+				// Semanticna analiza.
+				SemAn semAn = new SemAn(dumpPhases.contains("seman"));
+				source.accept(new NameChecker());
+				source.accept(new TypeChecker());
+				semAn.dump(source);
+				if (execPhase.equals("seman")) break;
+				// Klicni zapisi.
+				Frames frames = new Frames(dumpPhases.contains("frames"));
+				source.accept(new FrmEvaluator());
+				frames.dump(source);
+				if (execPhase.equals("frames")) break;
+				// Vmesna koda.
+				ImCode imcode = new ImCode(dumpPhases.contains("imcode"));
+				imcodegen = new ImcCodeGen();
+				source.accept(imcodegen);
+				if (stats && !optimize)
+					Report.warning("Statistics are reported by the optimizer only.");
+				if (optimize) {
+					Optimizer optimizer = new Optimizer();
+					optimizer.optimize(imcodegen.chunks);
+					if (stats) optimizer.dumpStatistics();
+				}
+				imcode.dump(imcodegen.chunks);
+				if (emit != null)
+					ProgramFile.write(imcodegen.chunks, sourceFileName.replaceFirst("(\\.pins)?$", ".pinsc"));
+				if (execPhase.equals("imcode")) break;
+			}
+
+			if (profile && !engine.equals("tree"))
+				Report.warning("Profiling is supported by the tree engine only.");
+			if (memoize && (profile || !engine.equals("tree")))
+				Report.warning("Memoization is supported by the tree engine without profiling only.");
+			try {
+				if (engine.equals("nodes"))
+					new NodeInterpreter(imcodegen);
+				else if (engine.equals("bytecode"))
+					new BytecodeInterpreter(imcodegen);
+				else if (engine.equals("jvm"))
+					new JvmInterpreter(imcodegen);
+				else if (engine.equals("tiered"))
+					new TieredInterpreter(imcodegen);
+				else if (profile)
+					new ProfilingInterpreter(imcodegen);
+				else if (memoize)
+					new MemoizingInterpreter(imcodegen);
+				else
+					new Interpreter(imcodegen);
+			} catch (ExecutionLimitException e) {
+				Report.error(e.getMessage());
 			}
-			// Sintaksna analiza.
-			SynAn synAn = new SynAn(lexAn, dumpPhases.contains("synan"));
-			AbsTree source = synAn.parse();
-			if (execPhase.equals("synan")) break;
-			// Abstraktna sintaksa.
-			Abstr ast = new Abstr(dumpPhases.contains("ast"));
-			ast.dump(source);
-			if (execPhase.equals("ast")) break;
-			// Semanticna analiza.
-			SemAn semAn = new SemAn(dumpPhases.contains("seman"));
-			source.accept(new NameChecker());
-			source.accept(new TypeChecker());
-			semAn.dump(source);
-			if (execPhase.equals("seman")) break;
-			// Klicni zapisi.
-			Frames frames = new Frames(dumpPhases.contains("frames"));
-			source.accept(new FrmEvaluator());
-			frames.dump(source);
-			if (execPhase.equals("frames")) break;
-			// Vmesna koda.
-			ImCode imcode = new ImCode(dumpPhases.contains("imcode"));
-			ImcCodeGen imcodegen = new ImcCodeGen();
-			source.accept(imcodegen);
-			imcode.dump(imcodegen.chunks);
-			if (execPhase.equals("imcode")) break;
-
-			Interpreter interpreter = new Interpreter(imcodegen);
 			if (execPhase.equals("interpreter")) break;
 			
 			// Neznana faza prevajanja.
@@ -57,4 +57,12 @@ public class FrmDesc {
 		return FrmDesc.acceses.get(var);
 	}
 
+	/**
+	 * Odstrani vse klicne zapise in dostope (pred obdelavo novega programa).
+	 */
+	public static void clear() {
+		frames.clear();
+		acceses.clear();
+	}
+
 }
@@ -1,5 +1,7 @@
 package compiler.frames;
 
+import java.util.concurrent.atomic.*;
+
 /**
  * Opis labele v programu.
  * 
@@ -24,6 +26,11 @@ public class FrmLabel {
 		return name == ((FrmLabel)l).name;
 	}
 
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
 	/**
 	 * Vrne ime labele.
 	 *
@@ -34,7 +41,7 @@ public class FrmLabel {
 	}
 
 	/** Stevec anonimnih label.  */
-	private static int label_count = 0;
+	private static final AtomicInteger label_count = new AtomicInteger();
 
 	/** 
 	 * Vrne novo anonimno labelo.
@@ -42,7 +49,7 @@ public class FrmLabel {
 	 * @return Nova anonimna labela.
 	 */
 	public static FrmLabel newLabel() {
-		return new FrmLabel("L" + (label_count++));
+		return new FrmLabel("L" + label_count.getAndIncrement());
 	}
 
 	/**
@@ -55,4 +62,16 @@ public class FrmLabel {
 		return new FrmLabel("_" + name);
 	}
 
+	/**
+	 * Vrne labelo z natanko danim imenom (npr. ob branju prevedenega
+	 * programa). Labele so enake le, ce imajo isti objekt imena, zato je treba
+	 * za vsako ime ustvariti le eno labelo.
+	 *
+	 * @param name Ime labele.
+	 * @return Labela.
+	 */
+	public static FrmLabel restoreLabel(String name) {
+		return new FrmLabel(name);
+	}
+
 }
@@ -1,5 +1,7 @@
 package compiler.frames;
 
+import java.util.concurrent.atomic.*;
+
 /**
  * Opis zacasne spremenljivke v programu.
  * 
@@ -8,7 +10,7 @@ package compiler.frames;
 public class FrmTemp {
 
 	/** Stevec zacasnih spremenljivk.  */
-	private static int count = 0;
+	private static final AtomicInteger count = new AtomicInteger();
 
 	/** Ime te zacasne spremenljivke.  */
 	private int num;
@@ -17,7 +19,7 @@ public class FrmTemp {
 	 * Ustvari novo zacasno spremenljivko.
 	 */
 	public FrmTemp() {
-		num = count++;
+		num = count.getAndIncrement();
 	}
 
 	/**
@@ -34,4 +36,9 @@ public class FrmTemp {
 		return num == ((FrmTemp)t).num;
 	}
 
+	@Override
+	public int hashCode() {
+		return num;
+	}
+
 }
@@ -67,15 +67,4 @@ public class ImcBINOP extends ImcExpr {
 		rimc.dump(indent + 2);
 	}
 
-	@Override
-	public ImcESEQ linear() {
-		ImcESEQ limc = this.limc.linear();
-		ImcESEQ rimc = this.rimc.linear();
-		ImcSEQ stmt = new ImcSEQ();
-		stmt.stmts.addAll(((ImcSEQ)limc.stmt).stmts);
-		stmt.stmts.addAll(((ImcSEQ)rimc.stmt).stmts);
-		ImcESEQ lin = new ImcESEQ(stmt, new ImcBINOP(op, limc.expr, rimc.expr));
-		return lin;
-	}
-
 }
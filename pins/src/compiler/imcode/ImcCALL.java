@@ -38,22 +38,4 @@ public class ImcCALL extends ImcExpr {
 		}
 	}
 
-	@Override
-	public ImcESEQ linear() {
-		ImcSEQ linStmt = new ImcSEQ();
-		ImcCALL linCall = new ImcCALL(label);
-		Iterator<ImcExpr> args = this.args.iterator();
-		while (args.hasNext()) {
-			FrmTemp temp = new FrmTemp();
-			ImcExpr arg = args.next();
-			ImcESEQ linArg = arg.linear();
-			linStmt.stmts.addAll(((ImcSEQ)linArg.stmt).stmts);
-			linStmt.stmts.add(new ImcMOVE(new ImcTEMP(temp), linArg.expr));
-			linCall.args.add(new ImcTEMP(temp));
-		}
-		FrmTemp temp = new FrmTemp();
-		linStmt.stmts.add(new ImcMOVE(new ImcTEMP(temp), linCall));
-		return new ImcESEQ(linStmt, new ImcTEMP(temp));
-	}
-
 }
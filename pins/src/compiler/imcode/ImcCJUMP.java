@@ -38,16 +38,4 @@ public class ImcCJUMP extends ImcStmt {
 		cond.dump(indent + 2);
 	}
 
-	@Override
-	public ImcSEQ linear() {
-		ImcSEQ lin = new ImcSEQ();
-		ImcESEQ linCond = cond.linear();
-		FrmLabel newFalseLabel = FrmLabel.newLabel();
-		lin.stmts.addAll(((ImcSEQ)linCond.stmt).stmts);
-		lin.stmts.add(new ImcCJUMP(linCond.expr, trueLabel, newFalseLabel));
-		lin.stmts.add(new ImcLABEL(newFalseLabel));
-		lin.stmts.add(new ImcJUMP(falseLabel));
-		return lin;
-	}
-
 }
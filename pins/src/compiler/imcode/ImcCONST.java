@@ -26,9 +26,4 @@ public class ImcCONST extends ImcExpr {
 		Report.dump(indent, "CONST value=" + value.toString());
 	}
 
-	@Override
-	public ImcESEQ linear() {
-		return new ImcESEQ(new ImcSEQ(), this);
-	}
-
 }
@@ -0,0 +1,227 @@
+package compiler.imcode;
+
+import compiler.*;
+import compiler.frames.*;
+
+/**
+ * Linearizacija vmesne kode.
+ * <p>
+ * Stavki se v enem prehodu zapisejo v eno samo zaporedje: izrazi v
+ * linearizirani kodi ne vsebujejo stavkov (ESEQ), klici pa so le v stavkih
+ * oblike MOVE(TEMP, CALL). Vrstni red izracuna je od leve proti desni. Vrednost
+ * podizraza se shrani v novo zacasno spremenljivko le, ce bi jo lahko
+ * spremenil kasnejsi klic ali stavek; konstante, zacasne spremenljivke in
+ * staticne povezave se uporabijo neposredno. Argumenti klica so poljubni
+ * izrazi brez klicev.
+ */
+public class ImcCanonicalizer {
+
+	/** Klicni zapis funkcije, katere koda se linearizira. */
+	private final FrmFrame frame;
+
+	/** Linearizirana koda. */
+	private ImcSEQ lin;
+
+	/**
+	 * Ustvari linearizator kode funkcije.
+	 *
+	 * @param frame Klicni zapis funkcije.
+	 */
+	public ImcCanonicalizer(FrmFrame frame) {
+		this.frame = frame;
+	}
+
+	/**
+	 * Linearizira stavek.
+	 *
+	 * @param stmt Stavek.
+	 * @return Linearizirana koda stavka.
+	 */
+	public ImcSEQ linear(ImcStmt stmt) {
+		lin = new ImcSEQ();
+		stmt(stmt);
+		return lin;
+	}
+
+	private void stmt(ImcStmt stmt) {
+		if (stmt instanceof ImcSEQ) {
+			for (ImcStmt s : ((ImcSEQ) stmt).stmts)
+				stmt(s);
+			return;
+		}
+		if (stmt instanceof ImcMOVE) {
+			move((ImcMOVE) stmt);
+			return;
+		}
+		if (stmt instanceof ImcEXP) {
+			ImcExpr expr = strip(((ImcEXP) stmt).expr);
+			if (expr instanceof ImcCALL)
+				lin.stmts.add(new ImcMOVE(new ImcTEMP(new FrmTemp()), call((ImcCALL) expr)));
+			else
+				lin.stmts.add(new ImcEXP(expr(expr)));
+			return;
+		}
+		if (stmt instanceof ImcCJUMP) {
+			ImcCJUMP cjump = (ImcCJUMP) stmt;
+			lin.stmts.add(new ImcCJUMP(expr(cjump.cond), cjump.trueLabel, cjump.falseLabel));
+			return;
+		}
+		if ((stmt instanceof ImcJUMP) || (stmt instanceof ImcLABEL)) {
+			lin.stmts.add(stmt);
+			return;
+		}
+		Report.error("Internal error.");
+	}
+
+	private void move(ImcMOVE move) {
+		ImcExpr dst = strip(move.dst);
+		if (dst instanceof ImcTEMP) {
+			// the result of the source is moved to the temp directly
+			ImcExpr src = strip(move.src);
+			if (src instanceof ImcCALL)
+				lin.stmts.add(new ImcMOVE(dst, call((ImcCALL) src)));
+			else
+				lin.stmts.add(new ImcMOVE(dst, expr(src)));
+			return;
+		}
+		if (dst instanceof ImcMEM) {
+			ImcExpr address = expr(((ImcMEM) dst).expr);
+			if (!commutes(address, move.src))
+				address = save(address);
+			lin.stmts.add(new ImcMOVE(new ImcMEM(address), expr(move.src)));
+			return;
+		}
+		Report.error("Internal error.");
+	}
+
+	/**
+	 * Linearizira izraz; stavki se zapisejo v {@link #lin}.
+	 *
+	 * @return Vrednost izraza brez stavkov in klicev.
+	 */
+	private ImcExpr expr(ImcExpr expr) {
+		if ((expr instanceof ImcCONST) || (expr instanceof ImcTEMP) || (expr instanceof ImcNAME))
+			return expr;
+		if (expr instanceof ImcMEM)
+			return new ImcMEM(expr(((ImcMEM) expr).expr));
+		if (expr instanceof ImcBINOP) {
+			ImcBINOP binop = (ImcBINOP) expr;
+			ImcExpr limc = expr(binop.limc);
+			if (!commutes(limc, binop.rimc))
+				limc = save(limc);
+			return new ImcBINOP(binop.op, limc, expr(binop.rimc));
+		}
+		if (expr instanceof ImcCALL)
+			return save(call((ImcCALL) expr));
+		if (expr instanceof ImcESEQ) {
+			stmt(((ImcESEQ) expr).stmt);
+			return expr(((ImcESEQ) expr).expr);
+		}
+		Report.error("Internal error.");
+		return null;
+	}
+
+	/**
+	 * Linearizira argumente klica.
+	 *
+	 * @return Klic z argumenti brez stavkov in klicev.
+	 */
+	private ImcCALL call(ImcCALL call) {
+		ImcCALL lin = new ImcCALL(call.label);
+		ImcExpr[] args = call.args.toArray(new ImcExpr[call.args.size()]);
+		for (int arg = 0; arg < args.length; arg++) {
+			ImcExpr value = expr(args[arg]);
+			for (int next = arg + 1; next < args.length; next++) {
+				if (!commutes(value, args[next])) {
+					value = save(value);
+					break;
+				}
+			}
+			lin.args.add(value);
+		}
+		return lin;
+	}
+
+	/** Izracuna izraz v novo zacasno spremenljivko. */
+	private ImcTEMP save(ImcExpr expr) {
+		ImcTEMP temp = new ImcTEMP(new FrmTemp());
+		lin.stmts.add(new ImcMOVE(temp, expr));
+		return temp;
+	}
+
+	/** Izvede stavke ESEQ na zacetku izraza in vrne preostanek izraza. */
+	private ImcExpr strip(ImcExpr expr) {
+		while (expr instanceof ImcESEQ) {
+			stmt(((ImcESEQ) expr).stmt);
+			expr = ((ImcESEQ) expr).expr;
+		}
+		return expr;
+	}
+
+	/**
+	 * Ali je vrednost ze izracunanega izraza enaka pred in po izracunu se
+	 * nelineariziranega izraza.
+	 *
+	 * @param value Linearizirana vrednost.
+	 * @param expr Izraz, ki se izracuna za njo.
+	 */
+	private boolean commutes(ImcExpr value, ImcExpr expr) {
+		if (value instanceof ImcCONST || value instanceof ImcNAME) return true;
+		if (!hasEffects(expr)) return true;
+		return isInvariant(value, expr);
+	}
+
+	/**
+	 * Ali vrednosti izraza ne spremenijo stavki in klici v danem izrazu.
+	 * Klici ne spreminjajo zacasnih spremenljivk klicoce funkcije, staticnih
+	 * povezav (MEM(...MEM(TEMP(FP))...)) pa ne spreminja noben stavek.
+	 */
+	private boolean isInvariant(ImcExpr value, ImcExpr expr) {
+		if (value instanceof ImcCONST || value instanceof ImcNAME) return true;
+		if (value instanceof ImcTEMP) return !writes(expr, ((ImcTEMP) value).temp);
+		if (value instanceof ImcBINOP)
+			return isInvariant(((ImcBINOP) value).limc, expr) && isInvariant(((ImcBINOP) value).rimc, expr);
+		if (value instanceof ImcMEM) {
+			ImcExpr link = value;
+			while (link instanceof ImcMEM)
+				link = ((ImcMEM) link).expr;
+			return (link instanceof ImcTEMP) && (((ImcTEMP) link).temp == frame.FP);
+		}
+		return false;
+	}
+
+	/** Ali ima izracun kode stranske ucinke (klic ali stavek). */
+	private static boolean hasEffects(ImcCode code) {
+		if (code instanceof ImcCALL) return true;
+		if (code instanceof ImcESEQ) return true;
+		if (code instanceof ImcMEM) return hasEffects(((ImcMEM) code).expr);
+		if (code instanceof ImcBINOP) return hasEffects(((ImcBINOP) code).limc) || hasEffects(((ImcBINOP) code).rimc);
+		return false;
+	}
+
+	/** Ali koda pise v zacasno spremenljivko. */
+	private static boolean writes(ImcCode code, FrmTemp temp) {
+		if (code instanceof ImcMOVE) {
+			ImcMOVE move = (ImcMOVE) code;
+			if ((move.dst instanceof ImcTEMP) && (((ImcTEMP) move.dst).temp == temp)) return true;
+			return writes(move.dst, temp) || writes(move.src, temp);
+		}
+		if (code instanceof ImcSEQ) {
+			for (ImcStmt stmt : ((ImcSEQ) code).stmts)
+				if (writes(stmt, temp)) return true;
+			return false;
+		}
+		if (code instanceof ImcESEQ) return writes(((ImcESEQ) code).stmt, temp) || writes(((ImcESEQ) code).expr, temp);
+		if (code instanceof ImcEXP) return writes(((ImcEXP) code).expr, temp);
+		if (code instanceof ImcCJUMP) return writes(((ImcCJUMP) code).cond, temp);
+		if (code instanceof ImcMEM) return writes(((ImcMEM) code).expr, temp);
+		if (code instanceof ImcBINOP) return writes(((ImcBINOP) code).limc, temp) || writes(((ImcBINOP) code).rimc, temp);
+		if (code instanceof ImcCALL) {
+			for (ImcExpr arg : ((ImcCALL) code).args)
+				if (writes(arg, temp)) return true;
+			return false;
+		}
+		return false;
+	}
+
+}
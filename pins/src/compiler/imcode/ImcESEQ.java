@@ -32,13 +32,4 @@ public class ImcESEQ extends ImcExpr {
 		stmt.dump(indent + 2);
 		expr.dump(indent + 2);
 	}
-
-	@Override
-	public ImcESEQ linear() {
-		ImcSEQ linStmt = stmt.linear();
-		ImcESEQ linExpr = expr.linear();
-		linStmt.stmts.addAll(((ImcSEQ)linExpr.stmt).stmts);
-		linExpr.stmt = linStmt;
-		return linExpr;
-	}
 }
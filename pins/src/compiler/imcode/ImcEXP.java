@@ -27,14 +27,5 @@ public class ImcEXP extends ImcStmt {
 		expr.dump(indent + 2);
 	}
 
-	@Override
-	public ImcSEQ linear() {
-		ImcSEQ lin = new ImcSEQ();
-		ImcESEQ linExpr = expr.linear();
-		lin.stmts.addAll(((ImcSEQ)linExpr.stmt).stmts);
-		lin.stmts.add(new ImcEXP(linExpr.expr));
-		return lin;
-	}
-
 }
 
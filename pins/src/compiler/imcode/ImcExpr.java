@@ -7,11 +7,4 @@ package compiler.imcode;
  */
 public abstract class ImcExpr extends ImcCode {
 
-	/**
-	 * Vrne linearizirano vmesno kodo izraza.
-	 * 
-	 * @return Linearizirana vmesna koda izraza.
-	 */
-	public abstract ImcESEQ linear();
-
 }
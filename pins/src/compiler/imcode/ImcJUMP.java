@@ -23,11 +23,4 @@ public class ImcJUMP extends ImcStmt {
 		Report.dump(indent, "JUMP label=" + label.name());
 	}
 
-	@Override
-	public ImcSEQ linear() {
-		ImcSEQ lin = new ImcSEQ();
-		lin.stmts.add(this);
-		return lin;
-	}
-
 }
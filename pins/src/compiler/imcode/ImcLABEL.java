@@ -27,13 +27,6 @@ public class ImcLABEL extends ImcStmt {
 		Report.dump(indent, "LABEL label=" + label.name());
 	}
 
-	@Override
-	public ImcSEQ linear() {
-		ImcSEQ lin = new ImcSEQ();
-		lin.stmts.add(this);
-		return lin;
-	}
-
 	@Override
 	public boolean equals(Object obj) {
 		if (obj instanceof ImcLABEL) {
@@ -27,11 +27,4 @@ public class ImcMEM extends ImcExpr {
 		expr.dump(indent + 2);
 	}
 
-	@Override
-	public ImcESEQ linear() {
-		ImcESEQ lin = expr.linear();
-		lin.expr = new ImcMEM(lin.expr);
-		return lin;
-	}
-
 }
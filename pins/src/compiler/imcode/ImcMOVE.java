@@ -32,15 +32,4 @@ public class ImcMOVE extends ImcStmt {
 		src.dump(indent + 2);
 	}
 
-	@Override
-	public ImcSEQ linear() {
-		ImcSEQ lin = new ImcSEQ();
-		ImcESEQ dst = this.dst.linear();
-		ImcESEQ src = this.src.linear();
-		lin.stmts.addAll(((ImcSEQ)dst.stmt).stmts);
-		lin.stmts.addAll(((ImcSEQ)src.stmt).stmts);
-		lin.stmts.add(new ImcMOVE(dst.expr, src.expr));
-		return lin;
-	}
-
 }
@@ -27,9 +27,4 @@ public class ImcNAME extends ImcExpr {
 		Report.dump(indent, "NAME label=" + label.name());
 	}
 
-	@Override
-	public ImcESEQ linear() {
-		return new ImcESEQ(new ImcSEQ(), this);
-	}
-
 }
@@ -31,16 +31,4 @@ public class ImcSEQ extends ImcStmt {
 		}
 	}
 
-	@Override
-	public ImcSEQ linear() {
-		ImcSEQ lin = new ImcSEQ();
-		Iterator<ImcStmt> stmts = this.stmts.iterator();
-		while (stmts.hasNext()) {
-			ImcStmt stmt = stmts.next();
-			ImcSEQ linStmt = stmt.linear();
-			lin.stmts.addAll(linStmt.stmts);
-		}
-		return lin;
-	}
-
 }
@@ -7,11 +7,4 @@ package compiler.imcode;
  */
 public abstract class ImcStmt extends ImcCode {
 
-	/**
-	 * Vrne linearizirano vmesno kodo stavka.
-	 * 
-	 * @return linearizirana vmesna koda stavka.
-	 */
-	public abstract ImcSEQ linear();
-
 }
@@ -27,9 +27,4 @@ public class ImcTEMP extends ImcExpr {
 		Report.dump(indent, "TEMP name=" + temp.name());
 	}
 
-	@Override
-	public ImcESEQ linear() {
-		return new ImcESEQ(new ImcSEQ(), this);
-	}
-
 }
@@ -0,0 +1,116 @@
+package compiler.interpreter;
+
+import compiler.frames.*;
+
+/**
+ * Registrska zlogovna koda funkcije.
+ * <p>
+ * Ukaz je zaporedje celih stevil: operacijska koda, ki ji sledijo operandi.
+ * Operandi so indeksi registrov, konstante, cilji skokov (indeksi v
+ * {@link #code}) ali indeksi klicanih funkcij v {@link #callees} oziroma
+ * {@link #intrinsics}.
+ */
+public class Bytecode {
+
+	/** CONST d, k: r[d] = k */
+	public static final int CONST = 0;
+	/** MOVE d, a: r[d] = r[a] */
+	public static final int MOVE = 1;
+	/** ADD d, a, b: r[d] = r[a] + r[b] */
+	public static final int ADD = 2;
+	/** SUB d, a, b: r[d] = r[a] - r[b] */
+	public static final int SUB = 3;
+	/** MUL d, a, b: r[d] = r[a] * r[b] */
+	public static final int MUL = 4;
+	/** DIV d, a, b: r[d] = r[a] / r[b] */
+	public static final int DIV = 5;
+	/** MOD d, a, b: r[d] = r[a] % r[b] */
+	public static final int MOD = 6;
+	/** EQU d, a, b: r[d] = r[a] == r[b] */
+	public static final int EQU = 7;
+	/** NEQ d, a, b: r[d] = r[a] != r[b] */
+	public static final int NEQ = 8;
+	/** LTH d, a, b: r[d] = r[a] < r[b] */
+	public static final int LTH = 9;
+	/** GTH d, a, b: r[d] = r[a] > r[b] */
+	public static final int GTH = 10;
+	/** LEQ d, a, b: r[d] = r[a] <= r[b] */
+	public static final int LEQ = 11;
+	/** GEQ d, a, b: r[d] = r[a] >= r[b] */
+	public static final int GEQ = 12;
+	/** AND d, a, b: r[d] = r[a] & r[b] (logicno) */
+	public static final int AND = 13;
+	/** OR d, a, b: r[d] = r[a] | r[b] (logicno) */
+	public static final int OR = 14;
+	/** LOAD d, a: r[d] = M[r[a]] */
+	public static final int LOAD = 15;
+	/** STORE a, b: M[r[a]] = r[b] */
+	public static final int STORE = 16;
+	/** JUMP t: pc = t */
+	public static final int JUMP = 17;
+	/** CJUMP c, t, f: pc = r[c] != 0 ? t : f */
+	public static final int CJUMP = 18;
+	/** CALL d, f, n, a1, ..., an: M[SP + 4i] = r[ai], klic callees[f], r[d] = M[SP] */
+	public static final int CALL = 19;
+	/** NATIVE d, f, n, a1, ..., an: M[SP + 4i] = r[ai], r[d] = klic vgrajene funkcije intrinsics[f] */
+	public static final int NATIVE = 20;
+	/** FP d: r[d] = FP */
+	public static final int FP = 21;
+	/** SP d: r[d] = SP */
+	public static final int SP = 22;
+	/** RET: vrnitev iz funkcije z rezultatom v registru RV */
+	public static final int RET = 23;
+	/** TAILCALL f, n, a1, ..., an: sprostitev klicnega zapisa, M[SP + 4i] = r[ai], nadaljevanje v callees[f] */
+	public static final int TAILCALL = 24;
+
+	// superinstructions for accesses to frame words
+
+	/** LOAD_LOCAL d, o: r[d] = M[FP + o] */
+	public static final int LOAD_LOCAL = 25;
+	/** STORE_LOCAL o, a: M[FP + o] = r[a] */
+	public static final int STORE_LOCAL = 26;
+	/** LOAD_UPLEVEL d, k, o: r[d] = M[M^k[FP] + o] (k staticnih povezav) */
+	public static final int LOAD_UPLEVEL = 27;
+	/** STORE_UPLEVEL k, o, a: M[M^k[FP] + o] = r[a] */
+	public static final int STORE_UPLEVEL = 28;
+	/** INC_LOCAL o, k: M[FP + o] = M[FP + o] + k */
+	public static final int INC_LOCAL = 29;
+	/** LOAD_OFFSET d, a, o: r[d] = M[r[a] + o] */
+	public static final int LOAD_OFFSET = 30;
+	/** STORE_OFFSET a, o, b: M[r[a] + o] = r[b] */
+	public static final int STORE_OFFSET = 31;
+
+	/** Imena operacijskih kod. */
+	public static final String[] NAMES = { "CONST", "MOVE", "ADD", "SUB", "MUL", "DIV", "MOD", "EQU", "NEQ",
+			"LTH", "GTH", "LEQ", "GEQ", "AND", "OR", "LOAD", "STORE", "JUMP", "CJUMP", "CALL", "NATIVE",
+			"FP", "SP", "RET", "TAILCALL", "LOAD_LOCAL", "STORE_LOCAL", "LOAD_UPLEVEL", "STORE_UPLEVEL",
+			"INC_LOCAL", "LOAD_OFFSET", "STORE_OFFSET" };
+
+	/** Povezana koda funkcije, iz katere je bila prevedena zlogovna koda. */
+	public final LinkedCode source;
+
+	/** Klicni zapis funkcije. */
+	public final FrmFrame frame;
+
+	/** Ukazi. */
+	public final int[] code;
+
+	/** Stevilo registrov (zacasne spremenljivke in pomozni registri). */
+	public final int numRegs;
+
+	/** Klicane funkcije. */
+	public final Bytecode[] callees;
+
+	/** Klicane vgrajene funkcije. */
+	public final Intrinsic[] intrinsics;
+
+	public Bytecode(LinkedCode source, int[] code, int numRegs, int numCallees, Intrinsic[] intrinsics) {
+		this.source = source;
+		this.frame = source.frame;
+		this.code = code;
+		this.numRegs = numRegs;
+		this.callees = new Bytecode[numCallees];
+		this.intrinsics = intrinsics;
+	}
+
+}
@@ -0,0 +1,340 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.*;
+import compiler.imcode.*;
+
+/**
+ * Prevajalnik linearizirane vmesne kode v registrsko zlogovno kodo.
+ */
+public class BytecodeCompiler {
+
+	/** Prevedene funkcije. */
+	private final HashMap<LinkedCode, Bytecode> compiled = new HashMap<LinkedCode, Bytecode>();
+
+	/** Klicane funkcije posameznih prevedenih funkcij. */
+	private final HashMap<Bytecode, ArrayList<LinkedCode>> calls = new HashMap<Bytecode, ArrayList<LinkedCode>>();
+
+	/**
+	 * Prevede vse funkcije programa in poveze klice med njimi.
+	 *
+	 * @param program Program.
+	 * @return Prevedene funkcije.
+	 */
+	public HashMap<LinkedCode, Bytecode> compile(Program program) {
+		for (LinkedCode function : program.functions())
+			compileReachable(function);
+		return compiled;
+	}
+
+	/**
+	 * Prevede funkcijo in vse se neprevedene funkcije, ki jih lahko klice, ter
+	 * poveze klice med njimi. Ze prevedene funkcije se ne prevajajo ponovno.
+	 *
+	 * @param root Funkcija.
+	 * @return Prevedena funkcija.
+	 */
+	public Bytecode compileReachable(LinkedCode root) {
+		ArrayList<Bytecode> added = new ArrayList<Bytecode>();
+		ArrayDeque<LinkedCode> pending = new ArrayDeque<LinkedCode>();
+		pending.add(root);
+		while (!pending.isEmpty()) {
+			LinkedCode function = pending.remove();
+			if (compiled.containsKey(function)) continue;
+			Bytecode bytecode = compile(function);
+			compiled.put(function, bytecode);
+			added.add(bytecode);
+			pending.addAll(calls.get(bytecode));
+		}
+		for (Bytecode bytecode : added) {
+			ArrayList<LinkedCode> callees = calls.get(bytecode);
+			for (int i = 0; i < callees.size(); i++)
+				bytecode.callees[i] = compiled.get(callees.get(i));
+		}
+		return compiled.get(root);
+	}
+
+	/*--- prevajanje ene funkcije ---*/
+
+	/** Prevajana funkcija. */
+	private LinkedCode function;
+
+	/** Ukazi prevajane funkcije. */
+	private int[] code;
+
+	/** Stevilo zapisanih ukazov. */
+	private int length;
+
+	/** Prvi prosti pomozni register. */
+	private int nextReg;
+
+	/** Najvecje stevilo uporabljenih registrov. */
+	private int maxRegs;
+
+	/** Klicane funkcije. */
+	private ArrayList<LinkedCode> callees;
+
+	/** Klicane vgrajene funkcije. */
+	private ArrayList<Intrinsic> intrinsics;
+
+	/** Polozaji ukazov, ki ustrezajo stavkom linearizirane kode. */
+	private int[] stmtPos;
+
+	/** Mesta operandov, ki vsebujejo indekse stavkov namesto ciljev skokov. */
+	private ArrayList<Integer> jumpOperands;
+
+	private Bytecode compile(LinkedCode function) {
+		this.function = function;
+		this.code = new int[64];
+		this.length = 0;
+		this.maxRegs = function.numRegs;
+		this.callees = new ArrayList<LinkedCode>();
+		this.intrinsics = new ArrayList<Intrinsic>();
+		this.stmtPos = new int[function.stmts.length + 1];
+		this.jumpOperands = new ArrayList<Integer>();
+
+		for (int pc = 0; pc < function.stmts.length; pc++) {
+			stmtPos[pc] = length;
+			nextReg = function.numRegs;
+			compileStmt(function.stmts[pc], pc);
+		}
+		stmtPos[function.stmts.length] = length;
+		emit(Bytecode.RET);
+
+		// jumps were emitted with statement indices, translate them to code positions
+		for (int operand : jumpOperands)
+			code[operand] = stmtPos[code[operand]];
+
+		Bytecode bytecode = new Bytecode(function, Arrays.copyOf(code, length), maxRegs, callees.size(),
+				intrinsics.toArray(new Intrinsic[intrinsics.size()]));
+		calls.put(bytecode, callees);
+		return bytecode;
+	}
+
+	private void compileStmt(ImcStmt stmt, int pc) {
+		if (stmt instanceof ImcLABEL)
+			return;
+		if (stmt instanceof ImcJUMP) {
+			emit(Bytecode.JUMP);
+			emitTarget(function.trueTarget[pc]);
+			return;
+		}
+		if (stmt instanceof ImcCJUMP) {
+			int cond = compileExpr(((ImcCJUMP) stmt).cond);
+			emit(Bytecode.CJUMP, cond);
+			emitTarget(function.trueTarget[pc]);
+			emitTarget(function.falseTarget[pc]);
+			return;
+		}
+		if (stmt instanceof ImcMOVE) {
+			ImcMOVE move = (ImcMOVE) stmt;
+			if ((move.dst instanceof ImcTEMP) && function.tailCall[pc]) {
+				compileTailCall((LinkedCALL) move.src);
+				return;
+			}
+			if (move.dst instanceof ImcTEMP) {
+				compileExprInto(move.src, ((LinkedTEMP) move.dst).reg);
+				return;
+			}
+			if (move.dst instanceof ImcMEM) {
+				Integer increment = FrameAccess.increment(move, function.frame);
+				if (increment != null) {
+					emit(Bytecode.INC_LOCAL, FrameAccess.of(((ImcMEM) move.dst).expr, function.frame).offset, increment);
+					return;
+				}
+				FrameAccess access = FrameAccess.of(((ImcMEM) move.dst).expr, function.frame);
+				if (access != null) {
+					int value = compileExpr(move.src);
+					if (access.depth == 0)
+						emit(Bytecode.STORE_LOCAL, access.offset, value);
+					else
+						emit(Bytecode.STORE_UPLEVEL, access.depth, access.offset, value);
+					return;
+				}
+				ImcCONST offset = offset(((ImcMEM) move.dst).expr);
+				if (offset != null) {
+					int base = compileExpr(((ImcBINOP) ((ImcMEM) move.dst).expr).limc);
+					int value = compileExpr(move.src);
+					emit(Bytecode.STORE_OFFSET, base, offset.value, value);
+					return;
+				}
+				int address = compileExpr(((ImcMEM) move.dst).expr);
+				int value = compileExpr(move.src);
+				emit(Bytecode.STORE, address, value);
+				return;
+			}
+		}
+		if (stmt instanceof ImcEXP) {
+			compileExpr(((ImcEXP) stmt).expr);
+			return;
+		}
+		Report.error("Internal error: cannot compile " + stmt.getClass().getSimpleName() + " to bytecode.");
+	}
+
+	/**
+	 * Prevede izraz v poljuben register.
+	 *
+	 * @return Register z vrednostjo izraza.
+	 */
+	private int compileExpr(ImcExpr expr) {
+		if (expr instanceof ImcTEMP)
+			return ((LinkedTEMP) expr).reg;
+		int reg = newReg();
+		compileExprInto(expr, reg);
+		return reg;
+	}
+
+	/**
+	 * Vrne odmik naslova oblike e + CONST (npr. dostop do spremenljivke prek
+	 * kazalca na klicni zapis v zacasni spremenljivki).
+	 *
+	 * @return Odmik oziroma null, ce naslov ni take oblike.
+	 */
+	private static ImcCONST offset(ImcExpr address) {
+		if (!(address instanceof ImcBINOP)) return null;
+		ImcBINOP binop = (ImcBINOP) address;
+		return ((binop.op == ImcBINOP.ADD) && (binop.rimc instanceof ImcCONST)) ? (ImcCONST) binop.rimc : null;
+	}
+
+	/**
+	 * Prevede izraz v dani register.
+	 */
+	private void compileExprInto(ImcExpr expr, int dst) {
+		if (expr instanceof ImcCONST) {
+			emit(Bytecode.CONST, dst, ((ImcCONST) expr).value);
+			return;
+		}
+		if (expr instanceof ImcTEMP) {
+			emit(Bytecode.MOVE, dst, ((LinkedTEMP) expr).reg);
+			return;
+		}
+		if (expr instanceof ImcBINOP) {
+			ImcBINOP binop = (ImcBINOP) expr;
+			int left = compileExpr(binop.limc);
+			int right = compileExpr(binop.rimc);
+			emit(binop(binop.op), dst, left, right);
+			return;
+		}
+		if (expr instanceof ImcMEM) {
+			FrameAccess access = FrameAccess.of(((ImcMEM) expr).expr, function.frame);
+			if ((access != null) && (access.depth == 0)) {
+				emit(Bytecode.LOAD_LOCAL, dst, access.offset);
+				return;
+			}
+			if (access != null) {
+				emit(Bytecode.LOAD_UPLEVEL, dst, access.depth, access.offset);
+				return;
+			}
+			ImcCONST offset = offset(((ImcMEM) expr).expr);
+			if (offset != null) {
+				emit(Bytecode.LOAD_OFFSET, dst, compileExpr(((ImcBINOP) ((ImcMEM) expr).expr).limc), offset.value);
+				return;
+			}
+			int address = compileExpr(((ImcMEM) expr).expr);
+			emit(Bytecode.LOAD, dst, address);
+			return;
+		}
+		if (expr instanceof ImcNAME) {
+			String name = ((ImcNAME) expr).label.name();
+			if (name.equals("FP")) {
+				emit(Bytecode.FP, dst);
+				return;
+			}
+			if (name.equals("SP")) {
+				emit(Bytecode.SP, dst);
+				return;
+			}
+			Report.error("Internal error: unresolved name " + name + ".");
+		}
+		if (expr instanceof ImcCALL) {
+			compileCall((ImcCALL) expr, dst);
+			return;
+		}
+		Report.error("Internal error: cannot compile " + expr.getClass().getSimpleName() + " to bytecode.");
+	}
+
+	private void compileCall(ImcCALL call, int dst) {
+		int[] args = new int[call.args.size()];
+		int i = 0;
+		for (ImcExpr arg : call.args)
+			args[i++] = compileExpr(arg);
+
+		// predefined functions
+		Intrinsic intrinsic = ((LinkedCALL) call).intrinsic;
+		if (intrinsic != null) {
+			int index = intrinsics.indexOf(intrinsic);
+			if (index < 0) {
+				index = intrinsics.size();
+				intrinsics.add(intrinsic);
+			}
+			emit(Bytecode.NATIVE, dst, index, args.length);
+			for (int arg : args)
+				emit(arg);
+			return;
+		}
+
+		emit(Bytecode.CALL, dst, callee(((LinkedCALL) call).callee), args.length);
+		for (int arg : args)
+			emit(arg);
+	}
+
+	private void compileTailCall(LinkedCALL call) {
+		int[] args = new int[call.args.size()];
+		int i = 0;
+		for (ImcExpr arg : call.args)
+			args[i++] = compileExpr(arg);
+
+		emit(Bytecode.TAILCALL, callee(call.callee), args.length);
+		for (int arg : args)
+			emit(arg);
+	}
+
+	private int callee(LinkedCode callee) {
+		int index = callees.indexOf(callee);
+		if (index < 0) {
+			index = callees.size();
+			callees.add(callee);
+		}
+		return index;
+	}
+
+	private int binop(int op) {
+		switch (op) {
+		case ImcBINOP.ADD: return Bytecode.ADD;
+		case ImcBINOP.SUB: return Bytecode.SUB;
+		case ImcBINOP.MUL: return Bytecode.MUL;
+		case ImcBINOP.DIV: return Bytecode.DIV;
+		case ImcBINOP.MOD: return Bytecode.MOD;
+		case ImcBINOP.EQU: return Bytecode.EQU;
+		case ImcBINOP.NEQ: return Bytecode.NEQ;
+		case ImcBINOP.LTH: return Bytecode.LTH;
+		case ImcBINOP.GTH: return Bytecode.GTH;
+		case ImcBINOP.LEQ: return Bytecode.LEQ;
+		case ImcBINOP.GEQ: return Bytecode.GEQ;
+		case ImcBINOP.AND: return Bytecode.AND;
+		case ImcBINOP.OR: return Bytecode.OR;
+		}
+		Report.error("Internal error.");
+		return -1;
+	}
+
+	private int newReg() {
+		int reg = nextReg++;
+		if (nextReg > maxRegs) maxRegs = nextReg;
+		return reg;
+	}
+
+	private void emitTarget(int stmt) {
+		jumpOperands.add(length);
+		emit(stmt);
+	}
+
+	private void emit(int... words) {
+		if (length + words.length > code.length)
+			code = Arrays.copyOf(code, 2 * code.length + words.length);
+		for (int word : words)
+			code[length++] = word;
+	}
+
+}
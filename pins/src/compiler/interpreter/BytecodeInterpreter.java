@@ -0,0 +1,321 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.imcode.*;
+
+/**
+ * Izvajanje registrske zlogovne kode na navideznem stroju.
+ * <p>
+ * Uporablja isti pomnilnik in isto obliko klicnih zapisov kot
+ * {@link Interpreter}.
+ */
+public class BytecodeInterpreter {
+
+	public BytecodeInterpreter(ImcCodeGen imcCodeGen) {
+		this(new Linker().link(imcCodeGen.chunks), new Machine());
+	}
+
+	/**
+	 * Izvede glavno funkcijo programa.
+	 *
+	 * @param program Program.
+	 * @param machine Navidezni stroj, na katerem naj se program izvede.
+	 */
+	public BytecodeInterpreter(Program program, Machine machine) {
+		this(machine);
+		HashMap<LinkedCode, Bytecode> bytecode = new BytecodeCompiler().compile(program);
+
+		execute(bytecode.get(machine.boot(program)));
+		machine.output().flush();
+	}
+
+	/**
+	 * Izvede klic funkcije z novim skladom aktivacij.
+	 *
+	 * @param machine Navidezni stroj.
+	 * @param called Zlogovna koda klicane funkcije.
+	 */
+	public static void execute(Machine machine, Bytecode called) {
+		new BytecodeInterpreter(machine).execute(called);
+	}
+
+	/*--- sklad aktivacij ---*/
+
+	/** Navidezni stroj, na katerem se izvaja zlogovna koda. */
+	private final Machine machine;
+
+	/** Registri vseh aktivacij na skladu. */
+	private int[] regs = new int[256];
+
+	/** Funkcije klicocih aktivacij. */
+	private Bytecode[] functions = new Bytecode[64];
+
+	/** Polozaji ukazov CALL, s katerimi so klicoce aktivacije klicale naslednjo. */
+	private int[] pcs = new int[64];
+
+	/** Baze oken registrov klicocih aktivacij. */
+	private int[] bases = new int[64];
+
+	/** Stevilo klicocih aktivacij na skladu. */
+	private int depth = 0;
+
+	/**
+	 * Pripravi izvajanje zlogovne kode, ki ga lahko ponovno uporabi vec
+	 * zaporednih klicev {@link #execute(Bytecode)}.
+	 *
+	 * @param machine Navidezni stroj.
+	 */
+	public BytecodeInterpreter(Machine machine) {
+		this.machine = machine;
+	}
+
+	/**
+	 * Izvede klic funkcije.
+	 * <p>
+	 * Klici funkcij se ne izvajajo rekurzivno, temvec se klicoca funkcija
+	 * shrani na sklad aktivacij in se klicana izvaja v isti zanki, zato globina
+	 * rekurzije ni omejena s skladom Jave. Registri vseh aktivacij so v enem
+	 * polju; okno aktivacije se zacne pri njeni bazi, okno klicane funkcije pa
+	 * takoj za oknom klicoce.
+	 *
+	 * @param called Zlogovna koda klicane funkcije.
+	 */
+	public void execute(Bytecode called) {
+		Machine machine = this.machine;
+		Memory mem = machine.mems;
+		Bytecode function = called;
+		depth = 0;
+		int base = 0;
+		int[] r = enter(function, base);
+		int fp = machine.fp;
+		int[] code = function.code;
+		int pc = 0;
+		while (true) {
+			switch (code[pc]) {
+			case Bytecode.CONST:
+				r[base + code[pc + 1]] = code[pc + 2];
+				pc += 3;
+				break;
+			case Bytecode.MOVE:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]];
+				pc += 3;
+				break;
+			case Bytecode.ADD:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] + r[base + code[pc + 3]];
+				pc += 4;
+				break;
+			case Bytecode.SUB:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] - r[base + code[pc + 3]];
+				pc += 4;
+				break;
+			case Bytecode.MUL:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] * r[base + code[pc + 3]];
+				pc += 4;
+				break;
+			case Bytecode.DIV:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] / r[base + code[pc + 3]];
+				pc += 4;
+				break;
+			case Bytecode.MOD:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] % r[base + code[pc + 3]];
+				pc += 4;
+				break;
+			case Bytecode.EQU:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] == r[base + code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case Bytecode.NEQ:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] != r[base + code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case Bytecode.LTH:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] < r[base + code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case Bytecode.GTH:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] > r[base + code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case Bytecode.LEQ:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] <= r[base + code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case Bytecode.GEQ:
+				r[base + code[pc + 1]] = r[base + code[pc + 2]] >= r[base + code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case Bytecode.AND:
+				r[base + code[pc + 1]] = (r[base + code[pc + 2]] != 0) && (r[base + code[pc + 3]] != 0) ? 1 : 0;
+				pc += 4;
+				break;
+			case Bytecode.OR:
+				r[base + code[pc + 1]] = (r[base + code[pc + 2]] != 0) || (r[base + code[pc + 3]] != 0) ? 1 : 0;
+				pc += 4;
+				break;
+			case Bytecode.LOAD:
+				r[base + code[pc + 1]] = mem.loadWord(r[base + code[pc + 2]]);
+				pc += 3;
+				break;
+			case Bytecode.STORE:
+				mem.storeWord(r[base + code[pc + 1]], r[base + code[pc + 2]]);
+				pc += 3;
+				break;
+			case Bytecode.JUMP: {
+				int target = code[pc + 1];
+				if (target <= pc) machine.tick(function.frame.fun.name);
+				pc = target;
+				break;
+			}
+			case Bytecode.CJUMP: {
+				int target = r[base + code[pc + 1]] != 0 ? code[pc + 2] : code[pc + 3];
+				if (target <= pc) machine.tick(function.frame.fun.name);
+				pc = target;
+				break;
+			}
+			case Bytecode.CALL: {
+				int sp = machine.sp;
+				int numArgs = code[pc + 3];
+				for (int i = 0; i < numArgs; i++)
+					mem.storeWord(sp + 4 * i, r[base + code[pc + 4 + i]]);
+
+				// the caller continues at this instruction once the callee returns
+				if (depth == functions.length) grow();
+				functions[depth] = function;
+				pcs[depth] = pc;
+				bases[depth] = base;
+				depth++;
+				base += function.numRegs;
+				function = function.callees[code[pc + 2]];
+				r = enter(function, base);
+				fp = machine.fp;
+				code = function.code;
+				pc = 0;
+				break;
+			}
+			case Bytecode.NATIVE: {
+				int sp = machine.sp;
+				int numArgs = code[pc + 3];
+				for (int i = 0; i < numArgs; i++)
+					mem.storeWord(sp + 4 * i, r[base + code[pc + 4 + i]]);
+				r[base + code[pc + 1]] = function.intrinsics[code[pc + 2]].invoke(machine, sp);
+				pc += 4 + numArgs;
+				break;
+			}
+			case Bytecode.FP:
+				r[base + code[pc + 1]] = machine.fp;
+				pc += 2;
+				break;
+			case Bytecode.SP:
+				r[base + code[pc + 1]] = machine.sp;
+				pc += 2;
+				break;
+			case Bytecode.TAILCALL: {
+				// release this frame, the callee reuses it
+				machine.sp = machine.sp + function.frame.size();
+				machine.fp = mem.loadWord(machine.sp - function.frame.sizeLocs - 4);
+				int numArgs = code[pc + 2];
+				for (int i = 0; i < numArgs; i++)
+					mem.storeWord(machine.sp + 4 * i, r[base + code[pc + 3 + i]]);
+				function = function.callees[code[pc + 1]];
+				r = enter(function, base);
+				fp = machine.fp;
+				code = function.code;
+				pc = 0;
+				break;
+			}
+			case Bytecode.LOAD_LOCAL:
+				r[base + code[pc + 1]] = mem.loadWord(fp + code[pc + 2]);
+				pc += 3;
+				break;
+			case Bytecode.STORE_LOCAL:
+				mem.storeWord(fp + code[pc + 1], r[base + code[pc + 2]]);
+				pc += 3;
+				break;
+			case Bytecode.LOAD_UPLEVEL: {
+				int frame = fp;
+				for (int link = code[pc + 2]; link > 0; link--)
+					frame = mem.loadWord(frame);
+				r[base + code[pc + 1]] = mem.loadWord(frame + code[pc + 3]);
+				pc += 4;
+				break;
+			}
+			case Bytecode.STORE_UPLEVEL: {
+				int frame = fp;
+				for (int link = code[pc + 1]; link > 0; link--)
+					frame = mem.loadWord(frame);
+				mem.storeWord(frame + code[pc + 2], r[base + code[pc + 3]]);
+				pc += 4;
+				break;
+			}
+			case Bytecode.INC_LOCAL: {
+				int address = fp + code[pc + 1];
+				mem.storeWord(address, mem.loadWord(address) + code[pc + 2]);
+				pc += 3;
+				break;
+			}
+			case Bytecode.LOAD_OFFSET:
+				r[base + code[pc + 1]] = mem.loadWord(r[base + code[pc + 2]] + code[pc + 3]);
+				pc += 4;
+				break;
+			case Bytecode.STORE_OFFSET:
+				mem.storeWord(r[base + code[pc + 1]] + code[pc + 2], r[base + code[pc + 3]]);
+				pc += 4;
+				break;
+			case Bytecode.RET: {
+				// epilogue
+				machine.sp = machine.sp + function.frame.size();
+				machine.fp = mem.loadWord(machine.sp - function.frame.sizeLocs - 4);
+				int result = r[base + LinkedCode.RV_REG];
+				mem.storeWord(machine.sp, result);
+				if (depth == 0)
+					return;
+
+				// finish the caller's CALL d, f, n, ...
+				depth--;
+				function = functions[depth];
+				pc = pcs[depth];
+				base = bases[depth];
+				fp = machine.fp;
+				code = function.code;
+				r[base + code[pc + 1]] = result;
+				pc += 4 + code[pc + 3];
+				break;
+			}
+			}
+		}
+	}
+
+	/**
+	 * Ustvari klicni zapis funkcije in pripravi njeno okno registrov.
+	 *
+	 * @param function Klicana funkcija.
+	 * @param base Baza okna registrov.
+	 * @return Registri vseh aktivacij.
+	 */
+	private int[] enter(Bytecode function, int base) {
+		machine.tick(function.frame.fun.name);
+
+		// prologue
+		machine.mems.storeWord(machine.sp - function.frame.sizeLocs - 4, machine.fp);
+		machine.fp = machine.sp;
+		machine.sp = machine.sp - function.frame.size();
+		machine.checkStack(function.frame.fun.name);
+
+		int top = base + function.numRegs;
+		if (top > regs.length)
+			regs = Arrays.copyOf(regs, Math.max(2 * regs.length, top));
+		for (int i = base; i < top; i++)
+			regs[i] = 0;
+		regs[base + LinkedCode.FP_REG] = machine.fp;
+		return regs;
+	}
+
+	/** Poveca sklad aktivacij. */
+	private void grow() {
+		functions = Arrays.copyOf(functions, 2 * depth);
+		pcs = Arrays.copyOf(pcs, 2 * depth);
+		bases = Arrays.copyOf(bases, 2 * depth);
+	}
+
+}
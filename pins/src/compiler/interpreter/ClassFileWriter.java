@@ -0,0 +1,443 @@
+package compiler.interpreter;
+
+import java.io.*;
+import java.util.*;
+
+import compiler.*;
+
+/**
+ * Minimalni zapisovalnik datotek razredov JVM.
+ * <p>
+ * Zapisuje razrede razlicice 50 (Java 6), ki ne potrebujejo tabel
+ * StackMapTable, zato zadosca, da so pri skokih sklad in lokalne spremenljivke
+ * med seboj skladni. Podpira le konstante, metode in ukaze, ki jih uporablja
+ * {@link JvmCompiler}.
+ */
+public class ClassFileWriter {
+
+	public static final int ICONST_0 = 0x03;
+	public static final int ICONST_1 = 0x04;
+	public static final int BIPUSH = 0x10;
+	public static final int SIPUSH = 0x11;
+	public static final int LDC_W = 0x13;
+	public static final int ILOAD = 0x15;
+	public static final int ALOAD = 0x19;
+	public static final int ISTORE = 0x36;
+	public static final int AALOAD = 0x32;
+	public static final int ASTORE = 0x3a;
+	public static final int POP = 0x57;
+	public static final int DUP = 0x59;
+	public static final int IADD = 0x60;
+	public static final int ISUB = 0x64;
+	public static final int IMUL = 0x68;
+	public static final int IDIV = 0x6c;
+	public static final int IREM = 0x70;
+	public static final int IAND = 0x7e;
+	public static final int IOR = 0x80;
+	public static final int IFEQ = 0x99;
+	public static final int IFNE = 0x9a;
+	public static final int IF_ICMPEQ = 0x9f;
+	public static final int IF_ICMPNE = 0xa0;
+	public static final int IF_ICMPLT = 0xa1;
+	public static final int IF_ICMPGE = 0xa2;
+	public static final int IF_ICMPGT = 0xa3;
+	public static final int IF_ICMPLE = 0xa4;
+	public static final int GOTO = 0xa7;
+	public static final int RETURN = 0xb1;
+	public static final int GETSTATIC = 0xb2;
+	public static final int PUTSTATIC = 0xb3;
+	public static final int GETFIELD = 0xb4;
+	public static final int PUTFIELD = 0xb5;
+	public static final int INVOKEVIRTUAL = 0xb6;
+	public static final int INVOKESTATIC = 0xb8;
+	public static final int ATHROW = 0xbf;
+	public static final int WIDE = 0xc4;
+
+	/** Najvecja velikost kode metode. */
+	public static final int MAX_CODE_LENGTH = 65535;
+
+	public static final int ACC_STATIC = 0x0008;
+	public static final int ACC_FINAL = 0x0010;
+	public static final int ACC_SUPER = 0x0020;
+
+	/** Ime razreda. */
+	private final String name;
+
+	/** Stevilo vnosov v tabeli konstant (vkljucno z vnosom 0). */
+	private int numConstants = 1;
+
+	/** Tabela konstant. */
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+
+	/** Ze zapisane konstante. */
+	private final HashMap<String, Integer> constants = new HashMap<String, Integer>();
+
+	/** Staticna polja razreda: zastavice dostopa, ime in opisnik. */
+	private final ArrayList<int[]> fields = new ArrayList<int[]>();
+
+	/** Metode razreda. */
+	private final ArrayList<Method> methods = new ArrayList<Method>();
+
+	/**
+	 * Ustvari nov razred.
+	 *
+	 * @param name Ime razreda (z locili '/').
+	 */
+	public ClassFileWriter(String name) {
+		this.name = name;
+	}
+
+	/*--- tabela konstant ---*/
+
+	private int constant(String key, int tag, byte[] data) {
+		Integer index = constants.get(key);
+		if (index != null) return index;
+		pool.write(tag);
+		pool.write(data, 0, data.length);
+		constants.put(key, numConstants);
+		return numConstants++;
+	}
+
+	private static byte[] u2(int... values) {
+		byte[] data = new byte[2 * values.length];
+		for (int i = 0; i < values.length; i++) {
+			data[2 * i] = (byte) (values[i] >> 8);
+			data[2 * i + 1] = (byte) values[i];
+		}
+		return data;
+	}
+
+	public int utf8(String value) {
+		try {
+			ByteArrayOutputStream data = new ByteArrayOutputStream();
+			new DataOutputStream(data).writeUTF(value);
+			return constant("U" + value, 1, data.toByteArray());
+		} catch (IOException __) {
+			Report.error("Internal error.");
+			return 0;
+		}
+	}
+
+	public int integer(int value) {
+		return constant("I" + value, 3, new byte[] { (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value });
+	}
+
+	public int string(String value) {
+		return constant("S" + value, 8, u2(utf8(value)));
+	}
+
+	public int classRef(String className) {
+		return constant("C" + className, 7, u2(utf8(className)));
+	}
+
+	public int nameAndType(String name, String desc) {
+		return constant("N" + name + " " + desc, 12, u2(utf8(name), utf8(desc)));
+	}
+
+	public int fieldRef(String owner, String name, String desc) {
+		return constant("F" + owner + "." + name + " " + desc, 9, u2(classRef(owner), nameAndType(name, desc)));
+	}
+
+	public int methodRef(String owner, String name, String desc) {
+		return constant("M" + owner + "." + name + " " + desc, 10, u2(classRef(owner), nameAndType(name, desc)));
+	}
+
+	/*--- polja ---*/
+
+	/**
+	 * Doda novo polje razreda.
+	 *
+	 * @param access Zastavice dostopa.
+	 * @param name Ime polja.
+	 * @param desc Opisnik polja.
+	 */
+	public void field(int access, String name, String desc) {
+		fields.add(new int[] { access, utf8(name), utf8(desc) });
+	}
+
+	/*--- metode ---*/
+
+	/**
+	 * Doda novo metodo razreda.
+	 *
+	 * @param access Zastavice dostopa.
+	 * @param name Ime metode.
+	 * @param desc Opisnik metode.
+	 * @return Metoda, v katero se zapisuje koda.
+	 */
+	public Method method(int access, String name, String desc) {
+		Method method = new Method(access, name, desc);
+		methods.add(method);
+		return method;
+	}
+
+	/**
+	 * Labela v kodi metode.
+	 */
+	public static class Label {
+
+		/** Polozaj labele v kodi (-1, ce se ni dolocen). */
+		private int position = -1;
+
+		/** Mesta skokov na labelo, ki jih je treba popraviti: polozaj ukaza in polozaj odmika. */
+		private final ArrayList<int[]> fixups = new ArrayList<int[]>();
+
+		/** Ali je polozaj labele ze dolocen. */
+		public boolean isMarked() {
+			return position >= 0;
+		}
+
+	}
+
+	/**
+	 * Koda metode.
+	 */
+	public class Method {
+
+		private final int access;
+		private final int name;
+		private final int desc;
+
+		/** Koda. */
+		private byte[] code = new byte[256];
+
+		/** Velikost kode. */
+		private int length = 0;
+
+		/** Trenutna globina sklada. */
+		private int stack = 0;
+
+		/** Najvecja globina sklada. */
+		private int maxStack = 0;
+
+		/** Stevilo lokalnih spremenljivk. */
+		public int maxLocals = 0;
+
+		/** Ali kaksen skok presega najvecji odmik. */
+		private boolean overflow = false;
+
+		/** Tabela izjem: zacetek in konec obmocja, upravljalnik in razred izjeme. */
+		private final ArrayList<int[]> handlers = new ArrayList<int[]>();
+
+		private Method(int access, String name, String desc) {
+			this.access = access;
+			this.name = utf8(name);
+			this.desc = utf8(desc);
+		}
+
+		/** Vrne velikost do sedaj zapisane kode. */
+		public int size() {
+			return length;
+		}
+
+		/**
+		 * Ali koda ustreza omejitvam JVM glede velikosti kode in odmikov skokov.
+		 *
+		 * @return Ali je koda veljavna.
+		 */
+		public boolean fits() {
+			return !overflow && (length <= MAX_CODE_LENGTH);
+		}
+
+		/**
+		 * Zavrze do sedaj zapisano kodo (npr. ker ne ustreza omejitvam JVM).
+		 */
+		public void clear() {
+			length = 0;
+			stack = 0;
+			maxStack = 0;
+			maxLocals = 0;
+			overflow = false;
+			handlers.clear();
+		}
+
+		/**
+		 * Zabelezi spremembo globine sklada.
+		 *
+		 * @param delta Sprememba globine sklada.
+		 */
+		public void stack(int delta) {
+			stack += delta;
+			if (stack > maxStack) maxStack = stack;
+		}
+
+		/**
+		 * Nastavi globino sklada (za kodo, ki sledi brezpogojnemu skoku).
+		 *
+		 * @param depth Globina sklada.
+		 */
+		public void setStack(int depth) {
+			stack = depth;
+		}
+
+		/** Vrne trenutno globino sklada. */
+		public int stack() {
+			return stack;
+		}
+
+		public void op(int opcode, int delta) {
+			write1(opcode);
+			stack(delta);
+		}
+
+		public void iconst(int value) {
+			if ((value >= -1) && (value <= 5)) {
+				write1(ICONST_0 + value);
+			} else if ((value >= Byte.MIN_VALUE) && (value <= Byte.MAX_VALUE)) {
+				write1(BIPUSH);
+				write1(value);
+			} else if ((value >= Short.MIN_VALUE) && (value <= Short.MAX_VALUE)) {
+				write1(SIPUSH);
+				write2(value);
+			} else {
+				write1(LDC_W);
+				write2(integer(value));
+			}
+			stack(1);
+		}
+
+		public void ldc(String value) {
+			write1(LDC_W);
+			write2(string(value));
+			stack(1);
+		}
+
+		public void local(int opcode, int index, int delta) {
+			if (index > 255) {
+				write1(WIDE);
+				write1(opcode);
+				write2(index);
+			} else {
+				write1(opcode);
+				write1(index);
+			}
+			if (index + 1 > maxLocals) maxLocals = index + 1;
+			stack(delta);
+		}
+
+		public void field(int opcode, String owner, String name, String desc, int delta) {
+			write1(opcode);
+			write2(fieldRef(owner, name, desc));
+			stack(delta);
+		}
+
+		public void invoke(int opcode, String owner, String name, String desc, int delta) {
+			write1(opcode);
+			write2(methodRef(owner, name, desc));
+			stack(delta);
+		}
+
+		public void jump(int opcode, Label label, int delta) {
+			int at = length;
+			write1(opcode);
+			if (label.isMarked()) {
+				write2(offset(at, label.position));
+			} else {
+				label.fixups.add(new int[] { at, length });
+				write2(0);
+			}
+			stack(delta);
+		}
+
+		public void mark(Label label) {
+			label.position = length;
+			for (int[] fixup : label.fixups) {
+				int offset = offset(fixup[0], label.position);
+				code[fixup[1]] = (byte) (offset >> 8);
+				code[fixup[1] + 1] = (byte) offset;
+			}
+			label.fixups.clear();
+		}
+
+		/**
+		 * Doda vnos v tabelo izjem. Polozaji vseh treh label morajo biti ze
+		 * doloceni.
+		 *
+		 * @param start Zacetek obmocja (vkljucno).
+		 * @param end Konec obmocja (izkljucno).
+		 * @param handler Zacetek upravljalnika; ob vstopu je na skladu izjema.
+		 * @param type Razred izjeme (z locili '/').
+		 */
+		public void handler(Label start, Label end, Label handler, String type) {
+			handlers.add(new int[] { start.position, end.position, handler.position, classRef(type) });
+		}
+
+		private int offset(int from, int to) {
+			int offset = to - from;
+			if ((offset < Short.MIN_VALUE) || (offset > Short.MAX_VALUE))
+				overflow = true;
+			return offset;
+		}
+
+		private void write1(int value) {
+			if (length == code.length)
+				code = Arrays.copyOf(code, 2 * code.length);
+			code[length++] = (byte) value;
+		}
+
+		private void write2(int value) {
+			write1(value >> 8);
+			write1(value);
+		}
+
+	}
+
+	/**
+	 * Vrne datoteko razreda.
+	 *
+	 * @return Vsebina datoteke razreda.
+	 */
+	public byte[] toByteArray() {
+		try {
+			int thisClass = classRef(name);
+			int superClass = classRef("java/lang/Object");
+			int codeName = utf8("Code");
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(50);
+			out.writeShort(numConstants);
+			pool.writeTo(out);
+			out.writeShort(ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0);
+			out.writeShort(fields.size());
+			for (int[] field : fields) {
+				out.writeShort(field[0]);
+				out.writeShort(field[1]);
+				out.writeShort(field[2]);
+				out.writeShort(0);
+			}
+			out.writeShort(methods.size());
+			for (Method method : methods) {
+				out.writeShort(method.access);
+				out.writeShort(method.name);
+				out.writeShort(method.desc);
+				out.writeShort(1);
+				out.writeShort(codeName);
+				out.writeInt(12 + method.length + 8 * method.handlers.size());
+				out.writeShort(method.maxStack);
+				out.writeShort(method.maxLocals);
+				out.writeInt(method.length);
+				out.write(method.code, 0, method.length);
+				out.writeShort(method.handlers.size());
+				for (int[] handler : method.handlers) {
+					out.writeShort(handler[0]);
+					out.writeShort(handler[1]);
+					out.writeShort(handler[2]);
+					out.writeShort(handler[3]);
+				}
+				out.writeShort(0);
+			}
+			out.writeShort(0);
+			return bytes.toByteArray();
+		} catch (IOException __) {
+			Report.error("Internal error.");
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,30 @@
+package compiler.interpreter;
+
+/**
+ * Izjema, s katero navidezni stroj ustavi program, ki je porabil vse gorivo,
+ * presegel casovno omejitev ali izcrpal sklad.
+ */
+public class ExecutionLimitException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Ime funkcije, v kateri se je izvajanje ustavilo. */
+	public final String function;
+
+	/** Stevilo korakov (skokov nazaj in klicev), izvedenih do ustavitve. */
+	public final long steps;
+
+	/**
+	 * Ustvari izjemo.
+	 *
+	 * @param reason Razlog za ustavitev.
+	 * @param function Ime funkcije, v kateri se je izvajanje ustavilo.
+	 * @param steps Stevilo izvedenih korakov.
+	 */
+	public ExecutionLimitException(String reason, String function, long steps) {
+		super("Execution stopped in function " + function + " after " + steps + " steps: " + reason + ".");
+		this.function = function;
+		this.steps = steps;
+	}
+
+}
@@ -0,0 +1,438 @@
+package compiler.interpreter;
+
+/**
+ * Izvrsljivo vozlisce izraza.
+ * <p>
+ * Vozlisca nastanejo enkrat, ob prevajanju linearizirane vmesne kode, in so
+ * specializirana glede na obliko izraza, zato se ob izvajanju ne preverja
+ * vrsta vozlisca in nic ne ustvarja.
+ */
+abstract class ExprNode {
+
+	/**
+	 * Izracuna vrednost izraza.
+	 *
+	 * @param frame Klicni zapis.
+	 * @return Vrednost izraza.
+	 */
+	abstract int execute(NodeFrame frame);
+
+	/** CONST */
+	static final class Const extends ExprNode {
+
+		private final int value;
+
+		Const(int value) {
+			this.value = value;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return value;
+		}
+
+	}
+
+	/** TEMP */
+	static final class Temp extends ExprNode {
+
+		private final int reg;
+
+		Temp(int reg) {
+			this.reg = reg;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return frame.regs[reg];
+		}
+
+	}
+
+	/** l + CONST */
+	static final class AddConst extends ExprNode {
+
+		private final ExprNode l;
+		private final int value;
+
+		AddConst(ExprNode l, int value) {
+			this.l = l;
+			this.value = value;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) + value;
+		}
+
+	}
+
+	/** MEM(TEMP(FP) + CONST) */
+	static final class LoadFrameSlot extends ExprNode {
+
+		private final int offset;
+
+		LoadFrameSlot(int offset) {
+			this.offset = offset;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return frame.mems.loadWord(frame.fp + offset);
+		}
+
+	}
+
+	/** MEM(MEM(...MEM(TEMP(FP))...) + CONST) */
+	static final class LoadUplevel extends ExprNode {
+
+		private final int depth;
+		private final int offset;
+
+		LoadUplevel(int depth, int offset) {
+			this.depth = depth;
+			this.offset = offset;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			int fp = frame.fp;
+			for (int link = depth; link > 0; link--)
+				fp = frame.mems.loadWord(fp);
+			return frame.mems.loadWord(fp + offset);
+		}
+
+	}
+
+	/** MEM(e + CONST) */
+	static final class LoadOffset extends ExprNode {
+
+		private final ExprNode base;
+		private final int offset;
+
+		LoadOffset(ExprNode base, int offset) {
+			this.base = base;
+			this.offset = offset;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return frame.mems.loadWord(base.execute(frame) + offset);
+		}
+
+	}
+
+	/** MEM */
+	static final class Load extends ExprNode {
+
+		private final ExprNode address;
+
+		Load(ExprNode address) {
+			this.address = address;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return frame.mems.loadWord(address.execute(frame));
+		}
+
+	}
+
+	/** NAME(FP) */
+	static final class FramePointer extends ExprNode {
+
+		@Override
+		int execute(NodeFrame frame) {
+			return frame.fp;
+		}
+
+	}
+
+	/** NAME(SP) */
+	static final class StackPointer extends ExprNode {
+
+		@Override
+		int execute(NodeFrame frame) {
+			return frame.sp;
+		}
+
+	}
+
+	/** CALL */
+	static final class Call extends ExprNode {
+
+		private final NodeFunction callee;
+		private final ExprNode[] args;
+
+		Call(NodeFunction callee, ExprNode[] args) {
+			this.callee = callee;
+			this.args = args;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			Memory mems = frame.mems;
+			for (int i = 0; i < args.length; i++)
+				mems.storeWord(frame.sp + 4 * i, args[i].execute(frame));
+			callee.invoke(frame.callee());
+			return mems.loadWord(frame.sp);
+		}
+
+	}
+
+	/** CALL vgrajene funkcije */
+	static final class Native extends ExprNode {
+
+		private final Intrinsic intrinsic;
+		private final ExprNode[] args;
+
+		Native(Intrinsic intrinsic, ExprNode[] args) {
+			this.intrinsic = intrinsic;
+			this.args = args;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			Memory mems = frame.mems;
+			for (int i = 0; i < args.length; i++)
+				mems.storeWord(frame.sp + 4 * i, args[i].execute(frame));
+			return intrinsic.invoke(frame.machine, frame.sp);
+		}
+
+	}
+
+	/** l + r */
+	static final class Add extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Add(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) + r.execute(frame);
+		}
+
+	}
+
+	/** l - r */
+	static final class Sub extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Sub(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) - r.execute(frame);
+		}
+
+	}
+
+	/** l * r */
+	static final class Mul extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Mul(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) * r.execute(frame);
+		}
+
+	}
+
+	/** l / r */
+	static final class Div extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Div(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) / r.execute(frame);
+		}
+
+	}
+
+	/** l % r */
+	static final class Mod extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Mod(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) % r.execute(frame);
+		}
+
+	}
+
+	/** l == r */
+	static final class Equ extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Equ(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) == r.execute(frame) ? 1 : 0;
+		}
+
+	}
+
+	/** l != r */
+	static final class Neq extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Neq(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) != r.execute(frame) ? 1 : 0;
+		}
+
+	}
+
+	/** l < r */
+	static final class Lth extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Lth(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) < r.execute(frame) ? 1 : 0;
+		}
+
+	}
+
+	/** l > r */
+	static final class Gth extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Gth(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) > r.execute(frame) ? 1 : 0;
+		}
+
+	}
+
+	/** l <= r */
+	static final class Leq extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Leq(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) <= r.execute(frame) ? 1 : 0;
+		}
+
+	}
+
+	/** l >= r */
+	static final class Geq extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Geq(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) >= r.execute(frame) ? 1 : 0;
+		}
+
+	}
+
+	/** l & r (logicno) */
+	static final class And extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		And(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return (l.execute(frame) != 0) & (r.execute(frame) != 0) ? 1 : 0;
+		}
+
+	}
+
+	/** l | r (logicno) */
+	static final class Or extends ExprNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+
+		Or(ExprNode l, ExprNode r) {
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return (l.execute(frame) != 0) | (r.execute(frame) != 0) ? 1 : 0;
+		}
+
+	}
+
+}
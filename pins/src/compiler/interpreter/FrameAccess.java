@@ -0,0 +1,78 @@
+package compiler.interpreter;
+
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Naslov besede v klicnem zapisu funkcije ali v klicnem zapisu staticno
+ * nadrejene funkcije.
+ * <p>
+ * Dostopi do lokalnih spremenljivk in parametrov imajo naslov oblike
+ * TEMP(FP) + CONST, dostopi do spremenljivk nadrejenih funkcij pa
+ * MEM(...MEM(TEMP(FP))...) + CONST, kjer je stevilo MEM enako razliki
+ * staticnih nivojev.
+ */
+final class FrameAccess {
+
+	/** Stevilo staticnih povezav, ki jim sledi dostop (0 za lastni klicni zapis). */
+	final int depth;
+
+	/** Odmik besede od FP klicnega zapisa, v katerem je beseda. */
+	final int offset;
+
+	private FrameAccess(int depth, int offset) {
+		this.depth = depth;
+		this.offset = offset;
+	}
+
+	/**
+	 * Razpozna naslov besede klicnega zapisa.
+	 *
+	 * @param address Naslov.
+	 * @param frame Klicni zapis funkcije, v kateri je naslov.
+	 * @return Opis naslova oziroma null, ce naslov ni take oblike.
+	 */
+	static FrameAccess of(ImcExpr address, FrmFrame frame) {
+		if (!(address instanceof ImcBINOP)) return null;
+		ImcBINOP binop = (ImcBINOP) address;
+		if ((binop.op != ImcBINOP.ADD) || !(binop.rimc instanceof ImcCONST)) return null;
+
+		int depth = 0;
+		ImcExpr link = binop.limc;
+		while (link instanceof ImcMEM) {
+			link = ((ImcMEM) link).expr;
+			depth++;
+		}
+		if (!(link instanceof ImcTEMP) || (((ImcTEMP) link).temp != frame.FP)) return null;
+		return new FrameAccess(depth, ((ImcCONST) binop.rimc).value);
+	}
+
+	/**
+	 * Razpozna povecanje besede lastnega klicnega zapisa za konstanto, tj.
+	 * stavek MOVE(MEM(a), MEM(a) + CONST) oziroma MOVE(MEM(a), CONST +
+	 * MEM(a)), kjer je a oblike TEMP(FP) + CONST.
+	 *
+	 * @param move Stavek.
+	 * @param frame Klicni zapis funkcije.
+	 * @return Povecanje oziroma null, ce stavek ni take oblike.
+	 */
+	static Integer increment(ImcMOVE move, FrmFrame frame) {
+		if (!(move.dst instanceof ImcMEM) || !(move.src instanceof ImcBINOP)) return null;
+		FrameAccess dst = of(((ImcMEM) move.dst).expr, frame);
+		if ((dst == null) || (dst.depth != 0)) return null;
+
+		ImcBINOP sum = (ImcBINOP) move.src;
+		if (sum.op != ImcBINOP.ADD) return null;
+		ImcExpr load = sum.limc;
+		ImcExpr value = sum.rimc;
+		if (load instanceof ImcCONST) {
+			load = sum.rimc;
+			value = sum.limc;
+		}
+		if (!(load instanceof ImcMEM) || !(value instanceof ImcCONST)) return null;
+		FrameAccess src = of(((ImcMEM) load).expr, frame);
+		if ((src == null) || (src.depth != 0) || (src.offset != dst.offset)) return null;
+		return ((ImcCONST) value).value;
+	}
+
+}
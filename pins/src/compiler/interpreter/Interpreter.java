@@ -7,162 +7,332 @@ import java.util.*;
 
 import compiler.frames.*;
 
-import java.util.Scanner;
-
 public class Interpreter {
 
 	public static boolean debug = false;
 
-	private String defaultFunction = "main";
+	/*--- nastavitve navideznega stroja ---*/
+
+	/** Velikost pomnilnika navideznega stroja v bajtih. */
+	public static int memorySize = 1 << 26;
+
+	/** Ali se dostopi do pomnilnika preverjajo. */
+	public static boolean checkMemory = false;
 
-	/*--- staticni del navideznega stroja ---*/
+	/** Najvecje stevilo korakov (skokov nazaj in klicev) izvajanja. */
+	public static long fuel = Long.MAX_VALUE;
 
-	/** Pomnilnik navideznega stroja. */
-	public static HashMap<Integer, Object> mems = new HashMap<Integer, Object>();
+	/** Casovna omejitev izvajanja v milisekundah (0, ce je ni). */
+	public static long timeout = 0;
 
+	/*--- dinamicni del navideznega stroja ---*/
+
+	/** Navidezni stroj, na katerem se izvaja program. */
+	protected final Machine machine;
 
-	public static void stM(Integer address, Object value) {
+	public void stM(int address, int value) {
 		if (debug) System.out.println(" [" + address + "] <= " + value);
-		mems.put(address, value);
+		machine.mems.storeWord(address, value);
 	}
 
-	public static Object ldM(Integer address) {
-		Object value = mems.get(address);
+	public int ldM(int address) {
+		int value = machine.mems.loadWord(address);
 		if (debug) System.out.println(" [" + address + "] => " + value);
 		return value;
 	}
 
-	/** Kazalec na vrh klicnega zapisa. */
-	private static int fp = 1000;
-
-	/** Kazalec na dno klicnega zapisa. */
-	private static int sp = 1000;
+	/** Program, ki ga izvaja navidezni stroj. */
+	private Program program = null;
 
-	private ImcCodeGen imcCodeGen = null;
+	/**
+	 * Zacasne spremenljivke (`registri') navideznega stroja za vse aktivacije
+	 * na skladu. Okno registrov aktivacije se zacne pri njeni bazi, okno
+	 * klicane funkcije pa takoj za oknom klicoce.
+	 */
+	private int[] registers = new int[256];
 
-	/*--- dinamicni del navideznega stroja ---*/
-
-	/** Zacasne spremenljivke (`registri') navideznega stroja. */
-	public HashMap<FrmTemp, Object> temps = new HashMap<FrmTemp, Object>();
+	/** Baza okna registrov aktivacije, ki se izvaja. */
+	private int base = 0;
 
-	public void stT(FrmTemp temp, Object value) {
-		if (debug) System.out.println(" " + temp.name() + " <= " + value);
-		temps.put(temp, value);
+	public void stT(LinkedTEMP temp, int value) {
+		if (debug) System.out.println(" " + temp.temp.name() + " <= " + value);
+		registers[base + temp.reg] = value;
 	}
 
-	public Object ldT(FrmTemp temp) {
-		Object value = temps.get(temp);
-		if (debug) System.out.println(" " + temp.name() + " => " + value);
+	public int ldT(LinkedTEMP temp) {
+		int value = registers[base + temp.reg];
+		if (debug) System.out.println(" " + temp.temp.name() + " => " + value);
 		return value;
 	}
 
-	public Interpreter(ImcCodeGen imcCodeGen) {
-		this.imcCodeGen = imcCodeGen;
+	/*--- sklad aktivacij ---*/
 
-		linearizator(imcCodeGen);
+	/** Koda funkcij na skladu aktivacij. */
+	private LinkedCode[] codes = new LinkedCode[64];
 
-		// set argument of main function to 0
-		stM(fp+4, 0);
+	/** Shranjeni stevci ukazov klicocih funkcij. */
+	private int[] pcs = new int[64];
 
+	/** Baze oken registrov funkcij na skladu aktivacij. */
+	private int[] bases = new int[64];
 
-		interpretFunctionName(defaultFunction);
+	/** Stevilo aktivacij na skladu. */
+	private int depth = 0;
+
+	/** Argumenti klica v repnem polozaju. */
+	private int[] arguments = new int[8];
+
+	public Interpreter(ImcCodeGen imcCodeGen) {
+		this(new Linker().link(imcCodeGen.chunks), new Machine());
+
+		run();
 	}
 
-	private void interpretFunctionName(String funName) {
-		FrmFrame frame = null;
-		ImcSEQ code = null;
-
-		for (int i = 0; i < imcCodeGen.chunks.size(); i++) {
-			ImcChunk c = imcCodeGen.chunks.get(i);
-			if (c instanceof  ImcCodeChunk) {
-				frame = ((ImcCodeChunk)c).frame;
-				if (frame.fun.name.equals(funName)) {
-					code = ((ImcCodeChunk) c).lincode.linear();
-					break;
-				}
-			}
-		}
+	/**
+	 * Pripravi izvajanje programa, ne da bi ga zagnal.
+	 *
+	 * @param program Program.
+	 * @param machine Navidezni stroj, na katerem naj se program izvede.
+	 */
+	public Interpreter(Program program, Machine machine) {
+		this.program = program;
+		this.machine = machine;
+	}
 
-		interpret(frame, code);
+	/**
+	 * Izvede glavno funkcijo programa.
+	 */
+	public void run() {
+		interpret(machine.boot(program));
+		machine.output().flush();
 	}
 
-	public Interpreter(String funLabel, ImcCodeGen imcCodeGen) {
-		this.imcCodeGen = imcCodeGen;
-		FrmFrame frame = null;
-		ImcSEQ code = null;
-
-		for (int i = 0; i < imcCodeGen.chunks.size(); i++) {
-			ImcChunk c = imcCodeGen.chunks.get(i);
-			if (c instanceof  ImcCodeChunk) {
-				frame = ((ImcCodeChunk)c).frame;
-				if (frame.label.name.equals(funLabel)) {
-					code = ((ImcCodeChunk) c).lincode.linear();
-					break;
+	/*--- Izvajanje navideznega stroja. ---*/
+
+	/**
+	 * Izvede klic funkcije.
+	 * <p>
+	 * Klici oblike MOVE(TEMP, CALL) se ne izvajajo rekurzivno, temvec se nova
+	 * aktivacija doda na sklad aktivacij in se izvaja v isti zanki, zato globina
+	 * rekurzije ni omejena s skladom Jave, temvec le s pomnilnikom navideznega
+	 * stroja.
+	 *
+	 * @param called Klicana funkcija.
+	 */
+	private void interpret(LinkedCode called) {
+		int bottom = depth;
+		LinkedCode code = called;
+		int pc = 0;
+		enter(code);
+
+		while (true) {
+			if (pc >= code.stmts.length) {
+				int result = leave(code);
+				if (depth == bottom)
+					return;
+
+				// store the result to the caller's MOVE(TEMP, CALL) and continue after it
+				code = codes[depth - 1];
+				pc = pcs[depth - 1];
+				base = bases[depth - 1];
+				stT((LinkedTEMP) ((ImcMOVE) code.stmts[pc]).dst, result);
+				pc++;
+				continue;
+			}
+
+			if (debug) System.out.println("pc=" + pc);
+			ImcStmt instruction = code.stmts[pc];
+			executed(instruction);
+
+			// jumps continue at precomputed targets
+			if (instruction instanceof ImcJUMP) {
+				int target = code.trueTarget[pc];
+				if (target <= pc) {
+					machine.tick(code.frame.fun.name);
+					backEdge(code);
+				}
+				pc = target;
+				continue;
+			}
+			if (instruction instanceof ImcCJUMP) {
+				int cond = evalInt(((ImcCJUMP) instruction).cond);
+				int target = (cond != 0) ? code.trueTarget[pc] : code.falseTarget[pc];
+				if (target <= pc) {
+					machine.tick(code.frame.fun.name);
+					backEdge(code);
+				}
+				pc = target;
+				continue;
+			}
+
+			// calls of PINS functions push a new activation
+			LinkedCode callee = callee(instruction);
+			if ((callee != null) && code.tailCall[pc]) {
+				// the callee replaces this activation and reuses its frame
+				int numArgs = evalArguments((ImcCALL) ((ImcMOVE) instruction).src);
+				leaveForTailCall(code);
+				for (int arg = 0; arg < numArgs; arg++)
+					stM(machine.sp + 4 * arg, arguments[arg]);
+				code = callee;
+				pc = 0;
+				enter(code);
+				continue;
+			}
+			if (callee != null) {
+				storeArguments((ImcCALL) ((ImcMOVE) instruction).src);
+				if (callCompiled(callee)) {
+					stT((LinkedTEMP) ((ImcMOVE) instruction).dst, ldM(machine.sp));
+					pc++;
+					continue;
 				}
+				pcs[depth - 1] = pc;
+				code = callee;
+				pc = 0;
+				enter(code);
+				continue;
 			}
+
+			exec(instruction);
+			pc++;
 		}
+	}
 
-		interpret(frame, code);
+	/**
+	 * Zabelezi izvedbo stavka. Privzeto ne naredi nicesar.
+	 *
+	 * @param instruction Stavek, ki se bo izvedel.
+	 */
+	protected void executed(ImcStmt instruction) {
 	}
 
-	private void linearizator(ImcCodeGen imcCodeGen) {
+	/**
+	 * Podre klicni zapis funkcije, ki se nadaljuje s klicem v repnem
+	 * polozaju; rezultat funkcije bo rezultat klicane funkcije.
+	 *
+	 * @param code Funkcija.
+	 */
+	protected void leaveForTailCall(LinkedCode code) {
+		leave(code);
+	}
 
-		for(int i = 0; i < imcCodeGen.chunks.size(); i++) {
-			ImcChunk ch = imcCodeGen.chunks.get(i);
-			if(ch instanceof ImcCodeChunk) {
-				ImcCodeChunk c = (ImcCodeChunk)ch;
-				c.lincode = c.imcode.linear();
-				imcCodeGen.chunks.set(i, c);
-			}
+	/**
+	 * Zabelezi skok nazaj v kodi funkcije. Privzeto ne naredi nicesar.
+	 *
+	 * @param code Funkcija, v kateri je bil izveden skok.
+	 */
+	protected void backEdge(LinkedCode code) {
+	}
+
+	/**
+	 * Izvede klic funkcije z ze shranjenimi argumenti na hitrejsem nivoju
+	 * izvajanja, ce je funkcija na voljo na njem. Privzeto ni nobena.
+	 *
+	 * @param callee Klicana funkcija.
+	 * @return Ali je bil klic izveden; rezultat je v tem primeru na naslovu sp.
+	 */
+	protected boolean callCompiled(LinkedCode callee) {
+		return false;
+	}
+
+	/**
+	 * Vrne funkcijo, ki jo klice stavek oblike MOVE(TEMP, CALL), oziroma null,
+	 * ce stavek ni take oblike ali klice vgrajeno funkcijo.
+	 */
+	private LinkedCode callee(ImcStmt instruction) {
+		if (!(instruction instanceof ImcMOVE)) return null;
+		ImcMOVE move = (ImcMOVE) instruction;
+		if (!(move.dst instanceof ImcTEMP) || !(move.src instanceof ImcCALL)) return null;
+		return ((LinkedCALL) move.src).callee;
+	}
+
+	/**
+	 * Shrani argumente klica, vkljucno s staticno povezavo, na mesto sp in
+	 * visje.
+	 */
+	private void storeArguments(ImcCALL call) {
+		int offset = 0;
+		for (ImcExpr arg : call.args) {
+			stM(machine.sp + offset, evalInt(arg));
+			offset += 4;
 		}
 	}
 
-	/*--- Izvajanje navideznega stroja. ---*/
+	/**
+	 * Izracuna argumente klica, vkljucno s staticno povezavo, v
+	 * {@link #arguments}.
+	 *
+	 * @return Stevilo argumentov.
+	 */
+	private int evalArguments(ImcCALL call) {
+		if (arguments.length < call.args.size())
+			arguments = new int[call.args.size()];
+		int arg = 0;
+		for (ImcExpr expr : call.args)
+			arguments[arg++] = evalInt(expr);
+		return arg;
+	}
 
-	private void interpret(FrmFrame frame, ImcSEQ code) {
+	/**
+	 * Ustvari klicni zapis funkcije in doda njeno aktivacijo na sklad.
+	 */
+	protected void enter(LinkedCode code) {
+		FrmFrame frame = code.frame;
+		machine.tick(frame.fun.name);
 		if (debug) {
 			System.out.println("[START OF " + frame.label.name() + "]");
 		}
 
-		stM(sp - frame.sizeLocs - 4 , fp);
-		fp = sp;
-		sp = sp - frame.size();
-
+		stM(machine.sp - frame.sizeLocs - 4 , machine.fp);
+		machine.fp = machine.sp;
+		machine.sp = machine.sp - frame.size();
+		machine.checkStack(frame.fun.name);
 
 		if (debug) {
-			System.out.println("[FP=" + fp + "]");
-			System.out.println("[SP=" + sp + "]");
+			System.out.println("[FP=" + machine.fp + "]");
+			System.out.println("[SP=" + machine.sp + "]");
 		}
 
-		stT(frame.FP, fp);
-
-		int pc = 0;
-		Object result = null;
-		while (pc < code.stmts.size()) {
-			if (debug) System.out.println("pc=" + pc);
-			ImcCode instruction = code.stmts.get(pc);
-			result = execute(instruction);
-			if (result instanceof ImcLABEL) {
-				for (pc = 0; pc < code.stmts.size(); pc++) {
-					instruction = code.stmts.get(pc);
-					if ((instruction instanceof ImcLABEL)
-							&& (((ImcLABEL) instruction).label.name().equals(((ImcLABEL) result).label.name())))
-						break;
-				}
-			}
-			else
-				pc++;
+		if (depth == codes.length) {
+			codes = Arrays.copyOf(codes, 2 * depth);
+			pcs = Arrays.copyOf(pcs, 2 * depth);
+			bases = Arrays.copyOf(bases, 2 * depth);
 		}
 
-		sp = sp + frame.size();
-		fp = (Integer) ldM(sp - frame.sizeLocs - 4 );
+		// the window of the callee starts right after the window of the caller
+		base = (depth == 0) ? 0 : bases[depth - 1] + codes[depth - 1].numRegs;
+		int top = base + code.numRegs;
+		if (top > registers.length)
+			registers = Arrays.copyOf(registers, Math.max(2 * registers.length, top));
+		for (int reg = base; reg < top; reg++)
+			registers[reg] = 0;
+		codes[depth] = code;
+		bases[depth] = base;
+		depth++;
+
+		registers[base + LinkedCode.FP_REG] = machine.fp;
+	}
+
+	/**
+	 * Odstrani aktivacijo funkcije s sklada in podre njen klicni zapis.
+	 *
+	 * @return Rezultat funkcije.
+	 */
+	protected int leave(LinkedCode code) {
+		FrmFrame frame = code.frame;
+		int result = registers[base + LinkedCode.RV_REG];
+
+		depth--;
+		codes[depth] = null;
+
+		machine.sp = machine.sp + frame.size();
+		machine.fp = ldM(machine.sp - frame.sizeLocs - 4 );
 
 		if (debug) {
-			System.out.println("[FP=" + fp + "]");
-			System.out.println("[SP=" + sp + "]");
+			System.out.println("[FP=" + machine.fp + "]");
+			System.out.println("[SP=" + machine.sp + "]");
 		}
 
-		stM(sp, result);
+		stM(machine.sp, result);
 		if (debug) {
 			System.out.println("[RV=" + result + "]");
 		}
@@ -170,94 +340,114 @@ public class Interpreter {
 		if (debug) {
 			System.out.println("[END OF " + frame.label.name() + "]");
 		}
+		return result;
+	}
+
+	/**
+	 * Izvede stavek.
+	 *
+	 * @param instruction Stavek.
+	 */
+	public void exec(ImcStmt instruction) {
+
+		if (instruction instanceof ImcMOVE) {
+			ImcMOVE instr = (ImcMOVE) instruction;
+			if (instr.dst instanceof ImcTEMP) {
+				stT((LinkedTEMP) instr.dst, evalInt(instr.src));
+				return;
+			}
+			if (instr.dst instanceof ImcMEM) {
+				int address = evalInt(((ImcMEM) instr.dst).expr);
+				stM(address, evalInt(instr.src));
+				return;
+			}
+		}
+
+		if (instruction instanceof ImcEXP) {
+			evalInt(((ImcEXP) instruction).expr);
+			return;
+		}
+
+		if (instruction instanceof ImcLABEL) {
+			return;
+		}
+
+		Report.error("Internal error: cannot execute " + instruction.getClass().getSimpleName() + ".");
 	}
 
-	public Object execute(ImcCode instruction) {
+	/**
+	 * Izracuna vrednost izraza.
+	 *
+	 * @param instruction Izraz.
+	 * @return Vrednost izraza.
+	 */
+	public int evalInt(ImcExpr instruction) {
 
 		if (instruction instanceof ImcBINOP) {
 			ImcBINOP instr = (ImcBINOP) instruction;
 
 			// get values of left and right part of instruction
-			Object fstSubValue = execute(instr.limc);
-			Object sndSubValue = execute(instr.rimc);
+			int fstSubValue = evalInt(instr.limc);
+			int sndSubValue = evalInt(instr.rimc);
 
 			// calculate instruction left op right, depending on op type
 			switch (instr.op) {
 				case ImcBINOP.OR:
-					return (((Integer) fstSubValue != 0) || ((Integer) sndSubValue != 0) ? 1 : 0);
+					return ((fstSubValue != 0) || (sndSubValue != 0) ? 1 : 0);
 				case ImcBINOP.AND:
-					return (((Integer) fstSubValue != 0) && ((Integer) sndSubValue != 0) ? 1 : 0);
+					return ((fstSubValue != 0) && (sndSubValue != 0) ? 1 : 0);
 				case ImcBINOP.EQU:
-					return (((Integer) fstSubValue).intValue() == ((Integer) sndSubValue).intValue() ? 1 : 0);
+					return (fstSubValue == sndSubValue ? 1 : 0);
 				case ImcBINOP.NEQ:
-					return (((Integer) fstSubValue).intValue() != ((Integer) sndSubValue).intValue() ? 1 : 0);
+					return (fstSubValue != sndSubValue ? 1 : 0);
 				case ImcBINOP.LTH:
-					return ((Integer) fstSubValue < (Integer) sndSubValue ? 1 : 0);
+					return (fstSubValue < sndSubValue ? 1 : 0);
 				case ImcBINOP.GTH:
-					return ((Integer) fstSubValue > (Integer) sndSubValue ? 1 : 0);
+					return (fstSubValue > sndSubValue ? 1 : 0);
 				case ImcBINOP.LEQ:
-					return ((Integer) fstSubValue <= (Integer) sndSubValue ? 1 : 0);
+					return (fstSubValue <= sndSubValue ? 1 : 0);
 				case ImcBINOP.GEQ:
-					return ((Integer) fstSubValue >= (Integer) sndSubValue ? 1 : 0);
+					return (fstSubValue >= sndSubValue ? 1 : 0);
 				case ImcBINOP.ADD:
-					return ((Integer) fstSubValue + (Integer) sndSubValue);
+					return (fstSubValue + sndSubValue);
 				case ImcBINOP.SUB:
-					return ((Integer) fstSubValue - (Integer) sndSubValue);
+					return (fstSubValue - sndSubValue);
 				case ImcBINOP.MUL:
-					return ((Integer) fstSubValue * (Integer) sndSubValue);
+					return (fstSubValue * sndSubValue);
 				case ImcBINOP.DIV:
-					return ((Integer) fstSubValue / (Integer) sndSubValue);
+					return (fstSubValue / sndSubValue);
 				case ImcBINOP.MOD:
-					return ((Integer) fstSubValue % (Integer) sndSubValue);
+					return (fstSubValue % sndSubValue);
 			}
 			Report.error("Internal error.");
-			return null;
+			return 0;
 		}
 
 		if (instruction instanceof ImcCALL) {
 			ImcCALL instr = (ImcCALL) instruction;
-			int offset = 0;
 
 			// store arguments, including static link to location of sp and above
-			for (ImcCode arg : instr.args) {
-				stM(sp + offset, execute(arg));
-				offset += 4;
-			}
+			storeArguments(instr);
 
 			// predefined functions
-			if (instr.label.name().equals("_putInt")) {
-				System.out.println((Integer) ldM(sp + 4));
-				return null;
-			}
-
-			if (instr.label.name().equals("_getInt")) {
-				Scanner scanner = new Scanner(System.in);
-				System.out.print("Enter integer value: ");
-
-				// store entered value to sp
-				stM(sp, scanner.nextInt());
+			Intrinsic intrinsic = ((LinkedCALL) instr).intrinsic;
+			if (intrinsic != null) {
+				stM(machine.sp, intrinsic.invoke(machine, machine.sp));
 
 				// read and return result
-				return ldM(sp);
+				return ldM(machine.sp);
 			}
 
-			// interpret function
-			new Interpreter(instr.label.name(), this.imcCodeGen);
+			// interpret function (calls outside of MOVE(TEMP, CALL) only)
+			LinkedCode callee = ((LinkedCALL) instr).callee;
+			if (!callCompiled(callee)) {
+				int window = base;
+				interpret(callee);
+				base = window;
+			}
 
 			// read and return result
-			return ldM(sp);
-		}
-
-		if (instruction instanceof ImcCJUMP) {
-			ImcCJUMP instr = (ImcCJUMP) instruction;
-			Object cond = execute(instr.cond);
-			if (cond instanceof Integer) {
-				if ((Integer) cond != 0)
-					return new ImcLABEL(instr.trueLabel);
-				else
-					return new ImcLABEL(instr.falseLabel);
-			}
-			else Report.error("CJUMP: illegal condition type.");
+			return ldM(machine.sp);
 		}
 
 		if (instruction instanceof ImcCONST) {
@@ -265,49 +455,24 @@ public class Interpreter {
 			return instr.value;
 		}
 
-		if (instruction instanceof ImcJUMP) {
-			ImcJUMP instr = (ImcJUMP) instruction;
-			return new ImcLABEL(instr.label);
-		}
-
-		if (instruction instanceof ImcLABEL) {
-			return null;
-		}
-
 		if (instruction instanceof ImcMEM) {
 			ImcMEM instr = (ImcMEM) instruction;
-			return ldM((Integer) execute(instr.expr));
-		}
-
-		if (instruction instanceof ImcMOVE) {
-			ImcMOVE instr = (ImcMOVE) instruction;
-			if (instr.dst instanceof ImcTEMP) {
-				FrmTemp temp = ((ImcTEMP) instr.dst).temp;
-				Object srcValue = execute(instr.src);
-				stT(temp, srcValue);
-				return srcValue;
-			}
-			if (instr.dst instanceof ImcMEM) {
-				Object dstValue = execute(((ImcMEM) instr.dst).expr);
-				Object srcValue = execute(instr.src);
-				stM((Integer) dstValue, srcValue);
-				return srcValue;
-			}
+			return ldM(evalInt(instr.expr));
 		}
 
 		if (instruction instanceof ImcNAME) {
 			String instrLabel = ((ImcNAME) instruction).label.name();
-			if (instrLabel.equals("FP")) return fp;
-			if (instrLabel.equals("SP")) return sp;
-
+			if (instrLabel.equals("FP")) return machine.fp;
+			if (instrLabel.equals("SP")) return machine.sp;
+			Report.error("Internal error: unresolved name " + instrLabel + ".");
 		}
 
 		if (instruction instanceof ImcTEMP) {
-			ImcTEMP instr = (ImcTEMP) instruction;
-			return ldT(instr.temp);
+			return ldT((LinkedTEMP) instruction);
 		}
 
-		return null;
+		Report.error("Internal error: cannot evaluate " + instruction.getClass().getSimpleName() + ".");
+		return 0;
 	}
 
 }
@@ -0,0 +1,48 @@
+package compiler.interpreter;
+
+import compiler.frames.*;
+
+/**
+ * Vgrajena funkcija, ki jo navidezni stroj izvede neposredno.
+ * <p>
+ * Vgrajena funkcija se klice kot vsaka druga funkcija: klicatelj shrani
+ * staticno povezavo in argumente na naslove SP, SP+4, ..., funkcija pa vrne
+ * rezultat klica.
+ */
+public abstract class Intrinsic {
+
+	/** Ime funkcije v programu PINS. */
+	public final String name;
+
+	/** Tip rezultata (konstanta iz {@link compiler.seman.type.SemAtomType}). */
+	public final int resultType;
+
+	/** Tipi parametrov (konstante iz {@link compiler.seman.type.SemAtomType}). */
+	public final int[] parTypes;
+
+	/**
+	 * Vstopna labela funkcije. Klici se razresijo po tej labeli, zato jih ni
+	 * mogoce zamenjati s klici uporabniske funkcije z enakim imenom.
+	 */
+	public final FrmLabel label;
+
+	/** Indeks funkcije v {@link Intrinsics}. */
+	int index;
+
+	protected Intrinsic(String name, int resultType, int... parTypes) {
+		this.name = name;
+		this.label = FrmLabel.newLabel(name);
+		this.resultType = resultType;
+		this.parTypes = parTypes;
+	}
+
+	/**
+	 * Izvede klic funkcije.
+	 *
+	 * @param machine Navidezni stroj, ki izvaja klic.
+	 * @param sp Naslov staticne povezave; i-ti argument je na naslovu sp + 4i.
+	 * @return Rezultat klica.
+	 */
+	public abstract int invoke(Machine machine, int sp);
+
+}
@@ -0,0 +1,126 @@
+package compiler.interpreter;
+
+import java.io.*;
+import java.util.*;
+
+import compiler.frames.*;
+import compiler.seman.type.*;
+
+/**
+ * Register vgrajenih funkcij.
+ * <p>
+ * Iz registra se tvorijo deklaracije vgrajenih funkcij v
+ * {@link compiler.seman.NameChecker}, izvajalniki pa klice vgrajenih funkcij
+ * razresijo enkrat, ob povezovanju programa.
+ */
+public class Intrinsics {
+
+	/** Vgrajene funkcije po vrstnem redu registracije. */
+	private static final ArrayList<Intrinsic> all = new ArrayList<Intrinsic>();
+
+	/** Vgrajene funkcije po vstopnih labelah. */
+	private static final HashMap<FrmLabel, Intrinsic> byLabel = new HashMap<FrmLabel, Intrinsic>();
+
+	/** Standardni vhod vgrajenih funkcij. */
+	private static Scanner in = null;
+
+	/** Standardni izhod vgrajenih funkcij. */
+	private static OutputSink out = new OutputSink(new FileOutputStream(FileDescriptor.out));
+
+	/**
+	 * Doda vgrajeno funkcijo v register.
+	 *
+	 * @param intrinsic Vgrajena funkcija.
+	 */
+	public static void register(Intrinsic intrinsic) {
+		intrinsic.index = all.size();
+		all.add(intrinsic);
+		byLabel.put(intrinsic.label, intrinsic);
+	}
+
+	/**
+	 * Vrne vse vgrajene funkcije.
+	 *
+	 * @return Vgrajene funkcije.
+	 */
+	public static List<Intrinsic> all() {
+		return Collections.unmodifiableList(all);
+	}
+
+	/**
+	 * Vrne vgrajeno funkcijo z dano vstopno labelo. Labela mora biti labela
+	 * vgrajene funkcije same, labela uporabniske funkcije z enakim imenom ne
+	 * zadosca.
+	 *
+	 * @param label Vstopna labela funkcije.
+	 * @return Vgrajena funkcija oziroma null, ce funkcija ni vgrajena.
+	 */
+	public static Intrinsic get(FrmLabel label) {
+		return byLabel.get(label);
+	}
+
+	/**
+	 * Izvede klic vgrajene funkcije z danim indeksom (za prevedeno kodo).
+	 */
+	public static int invoke(Machine machine, int index, int sp) {
+		return all.get(index).invoke(machine, sp);
+	}
+
+	/**
+	 * Vrne standardni izhod vgrajenih funkcij, ki ga uporablja navidezni stroj,
+	 * ustvarjen brez izrecnega izhoda.
+	 *
+	 * @return Izhod.
+	 */
+	public static OutputSink output() {
+		return out;
+	}
+
+	/**
+	 * Preusmeri standardni izhod vgrajenih funkcij, npr. v datoteko ali v
+	 * {@link ByteArrayOutputStream}. Dosedanji izhod se izprazni.
+	 *
+	 * @param output Nov izhod.
+	 */
+	public static void setOutput(OutputSink output) {
+		out.flush();
+		out = output;
+	}
+
+	/** Vrne standardni vhod vgrajenih funkcij. */
+	static Scanner in() {
+		if (in == null)
+			in = new Scanner(new BufferedInputStream(System.in));
+		return in;
+	}
+
+	static {
+		// output still buffered when the VM exits, e.g. on a runtime error
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				out.flush();
+			}
+		});
+
+		register(new Intrinsic("putInt", SemAtomType.VOID, SemAtomType.INT) {
+			@Override
+			public int invoke(Machine machine, int sp) {
+				machine.output().putInt(machine.mems.loadWord(sp + 4));
+
+				// putInt has no result, read it as 0
+				return 0;
+			}
+		});
+		register(new Intrinsic("getInt", SemAtomType.INT, SemAtomType.INT) {
+			@Override
+			public int invoke(Machine machine, int sp) {
+				OutputSink out = machine.output();
+				out.print("Enter integer value: ");
+				out.flush();
+				return machine.input().nextInt();
+			}
+		});
+	}
+
+}
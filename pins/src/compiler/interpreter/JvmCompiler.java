@@ -0,0 +1,597 @@
+package compiler.interpreter;
+
+import java.lang.invoke.*;
+import java.util.*;
+
+import compiler.*;
+import compiler.frames.*;
+import compiler.imcode.*;
+
+import static compiler.interpreter.ClassFileWriter.*;
+
+/**
+ * Prevajalnik linearizirane vmesne kode v zlogovno kodo JVM.
+ * <p>
+ * Program se prevede v en skriti razred s po eno staticno metodo za vsak klicni
+ * zapis. Metode kot argument dobijo navidezni stroj ({@link Machine}) in
+ * uporabljajo isto obliko klicnih zapisov kot {@link Interpreter}, zacasne
+ * spremenljivke pa so lokalne spremenljivke JVM.
+ * Ce do klicnega zapisa funkcije ne morejo dostopati druge funkcije, so v
+ * lokalnih spremenljivkah JVM tudi njeni parametri in lokalne spremenljivke.
+ * Funkcija, katere koda presega omejitve JVM, se prevede v {@link Bytecode};
+ * njena metoda jo le izvede z {@link BytecodeInterpreter}.
+ * <p>
+ * Funkcije se klicejo rekurzivno, le klic funkcije same sebe v repnem
+ * polozaju se prevede v skok na zacetek metode. Program, ki izcrpa sklad
+ * Jave, ustavi izjema {@link ExecutionLimitException}.
+ */
+public class JvmCompiler {
+
+	private static final String CLASS = "compiler/interpreter/JvmProgram";
+	private static final String MACHINE = "compiler/interpreter/Machine";
+	private static final String FUNCTION_DESC = "(Lcompiler/interpreter/Machine;)V";
+	private static final String INTRINSICS = "compiler/interpreter/Intrinsics";
+	private static final String MEMORY = "compiler/interpreter/Memory";
+	private static final String MEMORY_DESC = "Lcompiler/interpreter/Memory;";
+	private static final String FALLBACKS = "fallbacks";
+	private static final String FALLBACKS_DESC = "[Lcompiler/interpreter/Bytecode;";
+	private static final String NAME_DESC = "(Ljava/lang/String;)V";
+
+	/** Lokalna spremenljivka JVM z navideznim strojem (argument metode). */
+	private static final int MACHINE_ARG = 0;
+
+	/** Lokalna spremenljivka JVM s pomnilnikom. */
+	private static final int MEM = 1;
+
+	/** Lokalna spremenljivka JVM s kazalcem FP. */
+	private static final int FP = 2;
+
+	/** Lokalna spremenljivka JVM s kazalcem SP. */
+	private static final int SP = 3;
+
+	/** Prva lokalna spremenljivka JVM z zacasno spremenljivko. */
+	private static final int TEMPS = 4;
+
+	/**
+	 * Prevede vse funkcije programa v skriti razred.
+	 *
+	 * @param program Program.
+	 * @return Metode prevedenih funkcij.
+	 */
+	public HashMap<LinkedCode, MethodHandle> compile(Program program) {
+		ClassFileWriter writer = new ClassFileWriter(CLASS);
+		writer.field(ACC_STATIC, FALLBACKS, FALLBACKS_DESC);
+		for (LinkedCode function : program.functions())
+			methodNames.put(function, "f" + methodNames.size() + function.frame.label.name());
+		for (LinkedCode function : program.functions())
+			compile(writer, function);
+
+		HashMap<LinkedCode, MethodHandle> methods = new HashMap<LinkedCode, MethodHandle>();
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(writer.toByteArray(), true);
+			lookup.findStaticVarHandle(lookup.lookupClass(), FALLBACKS, Bytecode[].class)
+					.set(fallbacks.toArray(new Bytecode[fallbacks.size()]));
+			for (LinkedCode function : program.functions())
+				methods.put(function, lookup.findStatic(lookup.lookupClass(), methodNames.get(function),
+						MethodType.methodType(void.class, Machine.class)));
+		} catch (ReflectiveOperationException | LinkageError e) {
+			Report.error("Internal error: cannot load compiled program (" + e + ").");
+		}
+		return methods;
+	}
+
+	/**
+	 * Imena metod funkcij. Gnezdene funkcije razlicnih funkcij imajo lahko
+	 * enako ime labele, zato ime metode vsebuje se zaporedno stevilko funkcije.
+	 */
+	private final IdentityHashMap<LinkedCode, String> methodNames = new IdentityHashMap<LinkedCode, String>();
+
+	/** Funkcije, ki se izvajajo v zlogovni kodi, po indeksih v polju fallbacks. */
+	private final ArrayList<Bytecode> fallbacks = new ArrayList<Bytecode>();
+
+	/** Prevajalnik funkcij, ki se izvajajo v zlogovni kodi. */
+	private final BytecodeCompiler bytecodeCompiler = new BytecodeCompiler();
+
+	/*--- prevajanje ene funkcije ---*/
+
+	/** Prevajana funkcija. */
+	private LinkedCode function;
+
+	/** Koda metode prevajane funkcije. */
+	private ClassFileWriter.Method method;
+
+	/** Labele stavkov linearizirane kode. */
+	private ClassFileWriter.Label[] labels;
+
+	/** Labela za prologom, kjer se nadaljuje klic funkcije same sebe v repnem polozaju. */
+	private ClassFileWriter.Label restart;
+
+	/** Skoki nazaj: vmesne labele, ki porabijo korak goriva, in indeksi ciljnih stavkov. */
+	private ArrayList<ClassFileWriter.Label> backEdges;
+	private ArrayList<Integer> backEdgeTargets;
+
+	/** Lokalne spremenljivke JVM, ki hranijo besede klicnega zapisa (po odmikih od FP). */
+	private HashMap<Integer, Integer> slots;
+
+	private void compile(ClassFileWriter writer, LinkedCode function) {
+		this.function = function;
+		this.method = writer.method(ACC_STATIC, methodNames.get(function), FUNCTION_DESC);
+		this.labels = new ClassFileWriter.Label[function.stmts.length + 1];
+		for (int pc = 0; pc < labels.length; pc++)
+			labels[pc] = new ClassFileWriter.Label();
+		this.restart = new ClassFileWriter.Label();
+		this.backEdges = new ArrayList<ClassFileWriter.Label>();
+		this.backEdgeTargets = new ArrayList<Integer>();
+		this.slots = frameSlots(function);
+
+		FrmFrame frame = function.frame;
+		ClassFileWriter.Label start = new ClassFileWriter.Label();
+		method.mark(start);
+
+		// prologue
+		tick();
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.field(GETFIELD, MACHINE, "mems", MEMORY_DESC, 0);
+		method.local(ASTORE, MEM, -1);
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.field(GETFIELD, MACHINE, "sp", "I", 0);
+		method.local(ISTORE, FP, -1);
+		method.local(ALOAD, MEM, 1);
+		method.local(ILOAD, FP, 1);
+		method.iconst(-frame.sizeLocs - 4);
+		method.op(IADD, -1);
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.field(GETFIELD, MACHINE, "fp", "I", 0);
+		method.invoke(INVOKEVIRTUAL, MEMORY, "storeWord", "(II)V", -3);
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.local(ILOAD, FP, 1);
+		method.field(PUTFIELD, MACHINE, "fp", "I", -2);
+		method.local(ILOAD, FP, 1);
+		method.iconst(-frame.size());
+		method.op(IADD, -1);
+		method.local(ISTORE, SP, -1);
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.local(ILOAD, SP, 1);
+		method.field(PUTFIELD, MACHINE, "sp", "I", -2);
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.ldc(function.frame.fun.name);
+		method.invoke(INVOKEVIRTUAL, MACHINE, "checkStack", NAME_DESC, -2);
+
+		// every local is initialized so that all paths agree on its type
+		method.mark(restart);
+		for (int reg = 0; reg < function.numRegs; reg++) {
+			if (reg == LinkedCode.FP_REG)
+				method.local(ILOAD, FP, 1);
+			else
+				method.iconst(0);
+			method.local(ISTORE, TEMPS + reg, -1);
+		}
+		for (Map.Entry<Integer, Integer> slot : slots.entrySet()) {
+			if (slot.getKey() >= 0)
+				loadWord(slot.getKey());
+			else
+				method.iconst(0);
+			method.local(ISTORE, slot.getValue(), -1);
+		}
+
+		for (int pc = 0; pc < function.stmts.length; pc++) {
+			method.mark(labels[pc]);
+			compileStmt(function.stmts[pc], pc);
+		}
+		method.mark(labels[function.stmts.length]);
+
+		// epilogue
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.local(ILOAD, FP, 1);
+		method.field(PUTFIELD, MACHINE, "sp", "I", -2);
+		method.local(ALOAD, MACHINE_ARG, 1);
+		loadWord(-frame.sizeLocs - 4);
+		method.field(PUTFIELD, MACHINE, "fp", "I", -2);
+		method.local(ALOAD, MEM, 1);
+		method.local(ILOAD, FP, 1);
+		method.local(ILOAD, TEMPS + LinkedCode.RV_REG, 1);
+		method.invoke(INVOKEVIRTUAL, MEMORY, "storeWord", "(II)V", -3);
+		method.op(RETURN, 0);
+
+		// back edges consume fuel before jumping to their targets
+		for (int edge = 0; edge < backEdges.size(); edge++) {
+			method.setStack(0);
+			method.mark(backEdges.get(edge));
+			tick();
+			method.jump(GOTO, labels[backEdgeTargets.get(edge)], 0);
+		}
+
+		// the Java stack is exhausted somewhere in this method or in its callees
+		ClassFileWriter.Label end = new ClassFileWriter.Label();
+		method.mark(end);
+		method.setStack(1);
+		method.op(POP, -1);
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.ldc(function.frame.fun.name);
+		method.invoke(INVOKEVIRTUAL, MACHINE, "stackOverflow",
+				"(Ljava/lang/String;)Lcompiler/interpreter/ExecutionLimitException;", -1);
+		method.op(ATHROW, -1);
+		method.handler(start, end, end, "java/lang/StackOverflowError");
+
+		if (!method.fits())
+			fallback(function);
+	}
+
+	/**
+	 * Nadomesti kodo metode, ki presega omejitve JVM, z izvajanjem funkcije v
+	 * zlogovni kodi. Klici metode se ne spremenijo.
+	 */
+	private void fallback(LinkedCode function) {
+		method.clear();
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.field(GETSTATIC, CLASS, FALLBACKS, FALLBACKS_DESC, 1);
+		method.iconst(fallbacks.size());
+		method.op(AALOAD, -1);
+		method.invoke(INVOKESTATIC, "compiler/interpreter/BytecodeInterpreter", "execute",
+				"(Lcompiler/interpreter/Machine;Lcompiler/interpreter/Bytecode;)V", -2);
+		method.op(RETURN, 0);
+		fallbacks.add(bytecodeCompiler.compileReachable(function));
+	}
+
+	/** Porabi korak goriva navideznega stroja. */
+	private void tick() {
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.ldc(function.frame.fun.name);
+		method.invoke(INVOKEVIRTUAL, MACHINE, "tick", NAME_DESC, -2);
+	}
+
+	/**
+	 * Vrne labelo, na katero skoci stavek pc, ko nadaljuje s stavkom target.
+	 * Skoki nazaj gredo prek vmesne labele, ki porabi korak goriva.
+	 */
+	private ClassFileWriter.Label target(int target, int pc) {
+		if (target > pc)
+			return labels[target];
+		ClassFileWriter.Label edge = new ClassFileWriter.Label();
+		backEdges.add(edge);
+		backEdgeTargets.add(target);
+		return edge;
+	}
+
+	/** Nalozi besedo klicnega zapisa na danem odmiku od FP. */
+	private void loadWord(int offset) {
+		method.local(ALOAD, MEM, 1);
+		method.local(ILOAD, FP, 1);
+		method.iconst(offset);
+		method.op(IADD, -1);
+		method.invoke(INVOKEVIRTUAL, MEMORY, "loadWord", "(I)I", -1);
+	}
+
+	private void compileStmt(ImcStmt stmt, int pc) {
+		if (stmt instanceof ImcLABEL)
+			return;
+		if (stmt instanceof ImcJUMP) {
+			method.jump(GOTO, target(function.trueTarget[pc], pc), 0);
+			return;
+		}
+		if (stmt instanceof ImcCJUMP) {
+			// a false target right after the jump is reached by falling through
+			ClassFileWriter.Label falseLabel = (function.falseTarget[pc] == pc + 1) ? null
+					: target(function.falseTarget[pc], pc);
+			compileCond(((ImcCJUMP) stmt).cond, target(function.trueTarget[pc], pc), falseLabel);
+			return;
+		}
+		if (stmt instanceof ImcMOVE) {
+			ImcMOVE move = (ImcMOVE) stmt;
+			if ((move.dst instanceof ImcTEMP) && function.tailCall[pc]
+					&& (((LinkedCALL) move.src).callee == function)) {
+				compileSelfTailCall((ImcCALL) move.src);
+				return;
+			}
+			if (move.dst instanceof ImcTEMP) {
+				compileExpr(move.src);
+				method.local(ISTORE, TEMPS + ((LinkedTEMP) move.dst).reg, -1);
+				return;
+			}
+			if (move.dst instanceof ImcMEM) {
+				Integer slot = slot((ImcMEM) move.dst);
+				if (slot != null) {
+					compileExpr(move.src);
+					method.local(ISTORE, slot, -1);
+					return;
+				}
+				method.local(ALOAD, MEM, 1);
+				compileExpr(((ImcMEM) move.dst).expr);
+				compileExpr(move.src);
+				method.invoke(INVOKEVIRTUAL, MEMORY, "storeWord", "(II)V", -3);
+				return;
+			}
+		}
+		if (stmt instanceof ImcEXP) {
+			compileExpr(((ImcEXP) stmt).expr);
+			method.op(POP, -1);
+			return;
+		}
+		Report.error("Internal error: cannot compile " + stmt.getClass().getSimpleName() + " to JVM code.");
+	}
+
+	private void compileCond(ImcExpr cond, ClassFileWriter.Label trueLabel, ClassFileWriter.Label falseLabel) {
+		if ((cond instanceof ImcBINOP) && (compare(((ImcBINOP) cond).op) >= 0)) {
+			ImcBINOP binop = (ImcBINOP) cond;
+			compileExpr(binop.limc);
+			compileExpr(binop.rimc);
+			method.jump(compare(binop.op), trueLabel, -2);
+		} else {
+			compileExpr(cond);
+			method.jump(IFNE, trueLabel, -1);
+		}
+		if (falseLabel != null)
+			method.jump(GOTO, falseLabel, 0);
+	}
+
+	private void compileExpr(ImcExpr expr) {
+		if (expr instanceof ImcCONST) {
+			method.iconst(((ImcCONST) expr).value);
+			return;
+		}
+		if (expr instanceof ImcTEMP) {
+			method.local(ILOAD, TEMPS + ((LinkedTEMP) expr).reg, 1);
+			return;
+		}
+		if (expr instanceof ImcBINOP) {
+			compileBinop((ImcBINOP) expr);
+			return;
+		}
+		if (expr instanceof ImcMEM) {
+			Integer slot = slot((ImcMEM) expr);
+			if (slot != null) {
+				method.local(ILOAD, slot, 1);
+				return;
+			}
+			method.local(ALOAD, MEM, 1);
+			compileExpr(((ImcMEM) expr).expr);
+			method.invoke(INVOKEVIRTUAL, MEMORY, "loadWord", "(I)I", -1);
+			return;
+		}
+		if (expr instanceof ImcNAME) {
+			String name = ((ImcNAME) expr).label.name();
+			if (name.equals("FP")) {
+				method.local(ILOAD, FP, 1);
+				return;
+			}
+			if (name.equals("SP")) {
+				method.local(ILOAD, SP, 1);
+				return;
+			}
+			Report.error("Internal error: unresolved name " + name + ".");
+		}
+		if (expr instanceof ImcCALL) {
+			compileCall((ImcCALL) expr);
+			return;
+		}
+		Report.error("Internal error: cannot compile " + expr.getClass().getSimpleName() + " to JVM code.");
+	}
+
+	private void compileBinop(ImcBINOP binop) {
+		compileExpr(binop.limc);
+		if ((binop.op == ImcBINOP.AND) || (binop.op == ImcBINOP.OR))
+			normalize();
+		compileExpr(binop.rimc);
+		switch (binop.op) {
+		case ImcBINOP.ADD: method.op(IADD, -1); return;
+		case ImcBINOP.SUB: method.op(ISUB, -1); return;
+		case ImcBINOP.MUL: method.op(IMUL, -1); return;
+		case ImcBINOP.DIV: method.op(IDIV, -1); return;
+		case ImcBINOP.MOD: method.op(IREM, -1); return;
+		case ImcBINOP.AND: normalize(); method.op(IAND, -1); return;
+		case ImcBINOP.OR: normalize(); method.op(IOR, -1); return;
+		}
+
+		// comparisons yield 1 or 0
+		ClassFileWriter.Label trueLabel = new ClassFileWriter.Label();
+		ClassFileWriter.Label endLabel = new ClassFileWriter.Label();
+		method.jump(compare(binop.op), trueLabel, -2);
+		method.iconst(0);
+		method.jump(GOTO, endLabel, 0);
+		method.setStack(method.stack() - 1);
+		method.mark(trueLabel);
+		method.iconst(1);
+		method.mark(endLabel);
+	}
+
+	/** Pretvori vrednost na vrhu sklada v 1 (ce ni 0) ali 0. */
+	private void normalize() {
+		ClassFileWriter.Label zeroLabel = new ClassFileWriter.Label();
+		ClassFileWriter.Label endLabel = new ClassFileWriter.Label();
+		method.jump(IFEQ, zeroLabel, -1);
+		method.iconst(1);
+		method.jump(GOTO, endLabel, 0);
+		method.setStack(method.stack() - 1);
+		method.mark(zeroLabel);
+		method.iconst(0);
+		method.mark(endLabel);
+	}
+
+	/** Vrne ukaz pogojnega skoka za primerjavo oziroma -1, ce operator ni primerjava. */
+	private static int compare(int op) {
+		switch (op) {
+		case ImcBINOP.EQU: return IF_ICMPEQ;
+		case ImcBINOP.NEQ: return IF_ICMPNE;
+		case ImcBINOP.LTH: return IF_ICMPLT;
+		case ImcBINOP.GTH: return IF_ICMPGT;
+		case ImcBINOP.LEQ: return IF_ICMPLE;
+		case ImcBINOP.GEQ: return IF_ICMPGE;
+		}
+		return -1;
+	}
+
+	private void compileCall(ImcCALL call) {
+		int offset = 0;
+		for (ImcExpr arg : call.args) {
+			method.local(ALOAD, MEM, 1);
+			method.local(ILOAD, SP, 1);
+			method.iconst(offset);
+			method.op(IADD, -1);
+			compileExpr(arg);
+			method.invoke(INVOKEVIRTUAL, MEMORY, "storeWord", "(II)V", -3);
+			offset += 4;
+		}
+
+		// predefined functions
+		Intrinsic intrinsic = ((LinkedCALL) call).intrinsic;
+		if (intrinsic != null) {
+			method.local(ALOAD, MACHINE_ARG, 1);
+			method.iconst(intrinsic.index);
+			method.local(ILOAD, SP, 1);
+			method.invoke(INVOKESTATIC, INTRINSICS, "invoke", "(Lcompiler/interpreter/Machine;II)I", -2);
+			return;
+		}
+
+		LinkedCode callee = ((LinkedCALL) call).callee;
+		method.local(ALOAD, MACHINE_ARG, 1);
+		method.invoke(INVOKESTATIC, CLASS, methodNames.get(callee), FUNCTION_DESC, -1);
+		method.local(ALOAD, MEM, 1);
+		method.local(ILOAD, SP, 1);
+		method.invoke(INVOKEVIRTUAL, MEMORY, "loadWord", "(I)I", -1);
+	}
+
+	/**
+	 * Prevede klic funkcije same sebe v repnem polozaju. Klicana funkcija bi
+	 * prevzela sproscen klicni zapis na istem mestu, zato se argumenti le
+	 * shranijo v klicni zapis, izvajanje pa se nadaljuje za prologom.
+	 */
+	private void compileSelfTailCall(ImcCALL call) {
+		// arguments may read parameters, so none is stored before all are evaluated
+		int values = TEMPS + function.numRegs + slots.size();
+		int numArgs = 0;
+		for (ImcExpr arg : call.args) {
+			compileExpr(arg);
+			method.local(ISTORE, values + numArgs++, -1);
+		}
+		for (int arg = 0; arg < numArgs; arg++) {
+			method.local(ALOAD, MEM, 1);
+			method.local(ILOAD, FP, 1);
+			method.iconst(4 * arg);
+			method.op(IADD, -1);
+			method.local(ILOAD, values + arg, 1);
+			method.invoke(INVOKEVIRTUAL, MEMORY, "storeWord", "(II)V", -3);
+		}
+		tick();
+		method.jump(GOTO, restart, 0);
+	}
+
+	/*--- besede klicnega zapisa v lokalnih spremenljivkah JVM ---*/
+
+	/**
+	 * Vrne lokalno spremenljivko JVM, ki hrani besedo klicnega zapisa, do
+	 * katere dostopa dani izraz, oziroma null, ce je beseda v pomnilniku.
+	 */
+	private Integer slot(ImcMEM mem) {
+		int offset = frameOffset(mem, function.frame);
+		return offset == Integer.MIN_VALUE ? null : slots.get(offset);
+	}
+
+	/**
+	 * Vrne odmik od FP, ce je izraz oblike MEM(TEMP(FP) + CONST), sicer
+	 * Integer.MIN_VALUE.
+	 */
+	private static int frameOffset(ImcMEM mem, FrmFrame frame) {
+		if (!(mem.expr instanceof ImcBINOP)) return Integer.MIN_VALUE;
+		ImcBINOP address = (ImcBINOP) mem.expr;
+		if ((address.op == ImcBINOP.ADD) && (address.limc instanceof ImcTEMP)
+				&& (((ImcTEMP) address.limc).temp == frame.FP) && (address.rimc instanceof ImcCONST))
+			return ((ImcCONST) address.rimc).value;
+		return Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Doloci besede klicnega zapisa, ki jih lahko hranimo v lokalnih
+	 * spremenljivkah JVM.
+	 * <p>
+	 * To je mogoce, ce vse klicane funkcije lezijo na nivoju 0 (in zato ne
+	 * sledijo staticni povezavi) in ce funkcija do svojega klicnega zapisa
+	 * dostopa le z izrazi oblike MEM(TEMP(FP) + CONST). FP sme sicer nastopati
+	 * le kot staticna povezava v klicih.
+	 */
+	private HashMap<Integer, Integer> frameSlots(LinkedCode function) {
+		HashMap<Integer, Integer> slots = new HashMap<Integer, Integer>();
+		FrameAccesses accesses = new FrameAccesses(function.frame);
+		for (ImcStmt stmt : function.stmts)
+			accesses.scanCopies(stmt);
+		for (ImcStmt stmt : function.stmts)
+			accesses.scan(stmt);
+		if (!accesses.local) return slots;
+
+		int next = TEMPS + function.numRegs;
+		for (int offset : accesses.offsets)
+			slots.put(offset, next++);
+		return slots;
+	}
+
+	private class FrameAccesses {
+
+		private final FrmFrame frame;
+
+		/** Zacasne spremenljivke, ki hranijo kopijo FP. */
+		private final HashSet<FrmTemp> copies = new HashSet<FrmTemp>();
+
+		/** Odmiki besed klicnega zapisa, do katerih dostopa funkcija. */
+		private final TreeSet<Integer> offsets = new TreeSet<Integer>();
+
+		/** Ali je klicni zapis dostopen le funkciji sami. */
+		private boolean local = true;
+
+		FrameAccesses(FrmFrame frame) {
+			this.frame = frame;
+		}
+
+		void scanCopies(ImcStmt stmt) {
+			if ((stmt instanceof ImcMOVE) && (((ImcMOVE) stmt).dst instanceof ImcTEMP)
+					&& (((ImcMOVE) stmt).src instanceof ImcTEMP)
+					&& (((ImcTEMP) ((ImcMOVE) stmt).src).temp == frame.FP))
+				copies.add(((ImcTEMP) ((ImcMOVE) stmt).dst).temp);
+		}
+
+		void scan(ImcCode code) {
+			if (code instanceof ImcMOVE) {
+				ImcMOVE move = (ImcMOVE) code;
+				if ((move.dst instanceof ImcTEMP) && copies.contains(((ImcTEMP) move.dst).temp)) {
+					if (!((move.src instanceof ImcTEMP) && (((ImcTEMP) move.src).temp == frame.FP)))
+						local = false;
+					return;
+				}
+				scan(move.dst);
+				scan(move.src);
+			} else if (code instanceof ImcMEM) {
+				int offset = frameOffset((ImcMEM) code, frame);
+				if (offset != Integer.MIN_VALUE)
+					offsets.add(offset);
+				else
+					scan(((ImcMEM) code).expr);
+			} else if (code instanceof ImcTEMP) {
+				FrmTemp temp = ((ImcTEMP) code).temp;
+				if ((temp == frame.FP) || copies.contains(temp))
+					local = false;
+			} else if (code instanceof ImcCALL) {
+				ImcCALL call = (ImcCALL) code;
+				if ((((LinkedCALL) call).callee != null) && (((LinkedCALL) call).callee.frame.level != 0))
+					local = false;
+				for (ImcExpr arg : call.args) {
+					boolean copy = (arg instanceof ImcTEMP)
+							&& ((((ImcTEMP) arg).temp == frame.FP) || copies.contains(((ImcTEMP) arg).temp));
+					if (!copy) scan(arg);
+				}
+			} else if (code instanceof ImcBINOP) {
+				scan(((ImcBINOP) code).limc);
+				scan(((ImcBINOP) code).rimc);
+			} else if (code instanceof ImcCJUMP) {
+				scan(((ImcCJUMP) code).cond);
+			} else if (code instanceof ImcEXP) {
+				scan(((ImcEXP) code).expr);
+			} else if (code instanceof ImcESEQ) {
+				scan(((ImcESEQ) code).stmt);
+				scan(((ImcESEQ) code).expr);
+			} else if (code instanceof ImcSEQ) {
+				for (ImcStmt stmt : ((ImcSEQ) code).stmts)
+					scan(stmt);
+			}
+		}
+
+	}
+
+}
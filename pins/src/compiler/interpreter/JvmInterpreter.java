@@ -0,0 +1,40 @@
+package compiler.interpreter;
+
+import java.lang.invoke.*;
+import java.util.*;
+
+import compiler.*;
+import compiler.imcode.*;
+
+/**
+ * Izvajanje programa, prevedenega v zlogovno kodo JVM.
+ * <p>
+ * Uporablja isti pomnilnik in isto obliko klicnih zapisov kot
+ * {@link Interpreter}.
+ */
+public class JvmInterpreter {
+
+	public JvmInterpreter(ImcCodeGen imcCodeGen) {
+		this(new Linker().link(imcCodeGen.chunks), new Machine());
+	}
+
+	/**
+	 * Izvede glavno funkcijo programa.
+	 *
+	 * @param program Program.
+	 * @param machine Navidezni stroj, na katerem naj se program izvede.
+	 */
+	public JvmInterpreter(Program program, Machine machine) {
+		HashMap<LinkedCode, MethodHandle> methods = new JvmCompiler().compile(program);
+
+		try {
+			methods.get(machine.boot(program)).invokeExact(machine);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			Report.error("Internal error: " + e + ".");
+		}
+		machine.output().flush();
+	}
+
+}
@@ -0,0 +1,42 @@
+package compiler.interpreter;
+
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Klic funkcije s povezavo na klicano funkcijo.
+ * <p>
+ * Povezovalnik nadomesti vsak {@link ImcCALL} s tem vozliscem, zato
+ * izvajalnikom klicane funkcije ni treba iskati prek labele.
+ */
+public class LinkedCALL extends ImcCALL {
+
+	/** Klicana funkcija (null, ce je funkcija vgrajena). */
+	LinkedCode callee = null;
+
+	/** Klicana vgrajena funkcija (null, ce funkcija ni vgrajena). */
+	Intrinsic intrinsic = null;
+
+	LinkedCALL(FrmLabel label) {
+		super(label);
+	}
+
+	/**
+	 * Vrne klicano funkcijo.
+	 *
+	 * @return Povezana koda klicane funkcije oziroma null, ce je funkcija vgrajena.
+	 */
+	public LinkedCode callee() {
+		return callee;
+	}
+
+	/**
+	 * Vrne klicano vgrajeno funkcijo.
+	 *
+	 * @return Vgrajena funkcija oziroma null, ce funkcija ni vgrajena.
+	 */
+	public Intrinsic intrinsic() {
+		return intrinsic;
+	}
+
+}
@@ -0,0 +1,99 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.*;
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Linearizirana koda funkcije z razresenimi cilji skokov.
+ */
+public class LinkedCode {
+
+	/** Register s kazalcem FP. */
+	public static final int FP_REG = 0;
+
+	/** Register z rezultatom funkcije. */
+	public static final int RV_REG = 1;
+
+	/** Klicni zapis funkcije. */
+	public final FrmFrame frame;
+
+	/** Stavki linearizirane kode. */
+	public final ImcStmt[] stmts;
+
+	/** Cilj skoka JUMP oziroma cilj izpolnjenega pogoja CJUMP (-1, ce stavek ni skok). */
+	public final int[] trueTarget;
+
+	/** Cilj neizpolnjenega pogoja CJUMP (-1, ce stavek ni pogojni skok). */
+	public final int[] falseTarget;
+
+	/** Stevilo registrov, ki jih potrebuje klic funkcije. */
+	public final int numRegs;
+
+	/** Ali je klic v stavku v repnem polozaju (doloci ga povezovalnik). */
+	public final boolean[] tailCall;
+
+	/** Registri zacasnih spremenljivk. */
+	private final IdentityHashMap<FrmTemp, Integer> registers;
+
+	/**
+	 * Poveze linearizirano kodo funkcije.
+	 *
+	 * @param frame Klicni zapis funkcije.
+	 * @param code Linearizirana koda funkcije.
+	 * @param registers Registri zacasnih spremenljivk; FP in RV sta v
+	 *            registrih {@link #FP_REG} in {@link #RV_REG}.
+	 */
+	public LinkedCode(FrmFrame frame, ImcSEQ code, IdentityHashMap<FrmTemp, Integer> registers) {
+		this.frame = frame;
+		this.stmts = code.stmts.toArray(new ImcStmt[code.stmts.size()]);
+		this.trueTarget = new int[stmts.length];
+		this.falseTarget = new int[stmts.length];
+		this.tailCall = new boolean[stmts.length];
+		this.registers = registers;
+		this.numRegs = registers.size();
+
+		// index label positions
+		HashMap<String, Integer> labels = new HashMap<String, Integer>();
+		for (int pc = 0; pc < stmts.length; pc++) {
+			if (stmts[pc] instanceof ImcLABEL)
+				labels.put(((ImcLABEL) stmts[pc]).label.name(), pc);
+		}
+
+		// resolve jump targets
+		for (int pc = 0; pc < stmts.length; pc++) {
+			trueTarget[pc] = -1;
+			falseTarget[pc] = -1;
+			if (stmts[pc] instanceof ImcJUMP) {
+				trueTarget[pc] = resolve(labels, ((ImcJUMP) stmts[pc]).label);
+			}
+			if (stmts[pc] instanceof ImcCJUMP) {
+				trueTarget[pc] = resolve(labels, ((ImcCJUMP) stmts[pc]).trueLabel);
+				falseTarget[pc] = resolve(labels, ((ImcCJUMP) stmts[pc]).falseLabel);
+			}
+		}
+	}
+
+	/**
+	 * Vrne register zacasne spremenljivke.
+	 *
+	 * @param temp Zacasna spremenljivka funkcije.
+	 * @return Indeks registra v oknu registrov funkcije.
+	 */
+	public int reg(FrmTemp temp) {
+		Integer reg = registers.get(temp);
+		if (reg == null)
+			Report.error("Internal error: temp " + temp.name() + " not found in " + frame.label.name() + ".");
+		return reg;
+	}
+
+	private int resolve(HashMap<String, Integer> labels, FrmLabel label) {
+		Integer pc = labels.get(label.name());
+		if (pc == null)
+			Report.error("Internal error: label " + label.name() + " not found in " + frame.label.name() + ".");
+		return pc;
+	}
+
+}
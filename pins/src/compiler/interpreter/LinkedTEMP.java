@@ -0,0 +1,22 @@
+package compiler.interpreter;
+
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Zacasna spremenljivka z dolocenim registrom.
+ * <p>
+ * Povezovalnik nadomesti vsak {@link ImcTEMP} s tem vozliscem, zato
+ * izvajalnikom registra ni treba iskati prek {@link LinkedCode#reg(FrmTemp)}.
+ */
+public class LinkedTEMP extends ImcTEMP {
+
+	/** Indeks registra v oknu registrov funkcije. */
+	public final int reg;
+
+	LinkedTEMP(FrmTemp temp, int reg) {
+		super(temp);
+		this.reg = reg;
+	}
+
+}
@@ -0,0 +1,141 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.*;
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Povezovalnik fragmentov vmesne kode v izvrsljiv program.
+ * <p>
+ * Povezovalnik razporedi podatkovne fragmente v podatkovni segment na dnu
+ * pomnilnika, vsako funkcijo linearizira in poveze natanko enkrat, v njeni
+ * kodi pa nadomesti imena podatkov z njihovimi naslovi in klice s klici, ki
+ * kazejo neposredno na klicano funkcijo, zacasne spremenljivke pa z
+ * zacasnimi spremenljivkami z dolocenimi registri. Oznaci tudi klice v repnem
+ * polozaju. Povezovanje ne spreminja fragmentov, zato se lahko isti fragmenti
+ * povezejo veckrat.
+ */
+public class Linker {
+
+	/** Naslov zacetka podatkovnega segmenta. */
+	public static final int DATA_START = 0;
+
+	/** Naslovi podatkov. */
+	private final HashMap<FrmLabel, Integer> data = new HashMap<FrmLabel, Integer>();
+
+	/** Povezane funkcije v vrstnem redu fragmentov. */
+	private final LinkedHashMap<FrmLabel, LinkedCode> functions = new LinkedHashMap<FrmLabel, LinkedCode>();
+
+	/** Klici, ki jih je treba povezati s klicanimi funkcijami. */
+	private final ArrayList<LinkedCALL> calls = new ArrayList<LinkedCALL>();
+
+	/** Registri zacasnih spremenljivk funkcije, ki se povezuje. */
+	private IdentityHashMap<FrmTemp, Integer> registers;
+
+	/**
+	 * Poveze program.
+	 *
+	 * @param chunks Fragmenti vmesne kode.
+	 * @return Program.
+	 */
+	public Program link(LinkedList<ImcChunk> chunks) {
+		// data segment
+		int address = DATA_START;
+		for (ImcChunk chunk : chunks) {
+			if (chunk instanceof ImcDataChunk) {
+				ImcDataChunk d = (ImcDataChunk) chunk;
+				data.put(d.label, address);
+				address += (d.size + 3) & ~3;
+			}
+		}
+
+		// code
+		for (ImcChunk chunk : chunks) {
+			if (chunk instanceof ImcCodeChunk) {
+				ImcCodeChunk c = (ImcCodeChunk) chunk;
+				if (c.lincode == null)
+					c.lincode = new ImcCanonicalizer(c.frame).linear(c.imcode);
+				registers = new IdentityHashMap<FrmTemp, Integer>();
+				registers.put(c.frame.FP, LinkedCode.FP_REG);
+				registers.put(c.frame.RV, LinkedCode.RV_REG);
+				ImcSEQ code = new ImcSEQ();
+				for (ImcStmt stmt : ((ImcSEQ) c.lincode).stmts)
+					code.stmts.add(link(stmt));
+				functions.put(c.frame.label, new LinkedCode(c.frame, code, registers));
+			}
+		}
+
+		// calls
+		for (LinkedCALL call : calls) {
+			call.intrinsic = Intrinsics.get(call.label);
+			if (call.intrinsic == null) {
+				call.callee = functions.get(call.label);
+				if (call.callee == null)
+					Report.error("Undefined function " + call.label.name() + ".");
+			}
+		}
+
+		for (LinkedCode code : functions.values())
+			TailCalls.mark(code);
+
+		return new Program(functions, data, address - DATA_START);
+	}
+
+	private ImcStmt link(ImcStmt stmt) {
+		if (stmt instanceof ImcMOVE)
+			return new ImcMOVE(link(((ImcMOVE) stmt).dst), link(((ImcMOVE) stmt).src));
+		if (stmt instanceof ImcEXP)
+			return new ImcEXP(link(((ImcEXP) stmt).expr));
+		if (stmt instanceof ImcCJUMP) {
+			ImcCJUMP cjump = (ImcCJUMP) stmt;
+			return new ImcCJUMP(link(cjump.cond), cjump.trueLabel, cjump.falseLabel);
+		}
+		if ((stmt instanceof ImcJUMP) || (stmt instanceof ImcLABEL))
+			return stmt;
+		Report.error("Internal error: cannot link " + stmt.getClass().getSimpleName() + ".");
+		return null;
+	}
+
+	private ImcExpr link(ImcExpr expr) {
+		if (expr instanceof ImcCONST)
+			return expr;
+		if (expr instanceof ImcTEMP) {
+			// temps are numbered densely, in order of their first use
+			FrmTemp temp = ((ImcTEMP) expr).temp;
+			Integer reg = registers.get(temp);
+			if (reg == null) {
+				reg = registers.size();
+				registers.put(temp, reg);
+			}
+			return new LinkedTEMP(temp, reg);
+		}
+		if (expr instanceof ImcBINOP) {
+			ImcBINOP binop = (ImcBINOP) expr;
+			return new ImcBINOP(binop.op, link(binop.limc), link(binop.rimc));
+		}
+		if (expr instanceof ImcMEM)
+			return new ImcMEM(link(((ImcMEM) expr).expr));
+		if (expr instanceof ImcNAME) {
+			FrmLabel label = ((ImcNAME) expr).label;
+			Integer address = data.get(label);
+			if (address != null)
+				return new ImcCONST(address);
+			if (label.name().equals("FP") || label.name().equals("SP"))
+				return expr;
+			Report.error("Undefined name " + label.name() + ".");
+		}
+		if (expr instanceof ImcCALL) {
+			ImcCALL call = (ImcCALL) expr;
+			LinkedCALL linked = new LinkedCALL(call.label);
+			for (ImcExpr arg : call.args)
+				linked.args.add(link(arg));
+			calls.add(linked);
+			return linked;
+		}
+		Report.error("Internal error: cannot link " + expr.getClass().getSimpleName() + ".");
+		return null;
+	}
+
+}
@@ -0,0 +1,176 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.*;
+
+/**
+ * Stanje ene izvedbe programa na navideznem stroju.
+ * <p>
+ * Vsaka izvedba ima svoj pomnilnik, svoja kazalca FP in SP ter svoj vhod in
+ * izhod, zato lahko v istem procesu hkrati tece vec programov. Vsi izvajalniki
+ * uporabljajo to stanje na enak nacin, zato ga lahko med izvajanjem delijo
+ * (npr. tolmac in prevedena koda pri izvajanju po nivojih).
+ * <p>
+ * Izvajanje je lahko omejeno z gorivom in s casovno omejitvijo. Vsak skok
+ * nazaj in vsak klic funkcije porabi en korak goriva; cas se preverja le na
+ * vsakih {@link #CHECK_INTERVAL} korakov. Ko je omejitev presezena, se
+ * izvajanje ustavi z izjemo {@link ExecutionLimitException}. Z isto izjemo se
+ * ustavi tudi program, ki izcrpa sklad.
+ */
+public class Machine {
+
+	/** Stevilo korakov med zaporednima preverjanjema omejitev. */
+	public static final int CHECK_INTERVAL = 1 << 12;
+
+	/** Pomnilnik. */
+	public final Memory mems;
+
+	/** Kazalec na vrh klicnega zapisa. */
+	public int fp = 0;
+
+	/** Kazalec na dno klicnega zapisa. */
+	public int sp = 0;
+
+	/** Vhod vgrajenih funkcij. */
+	private final Scanner in;
+
+	/** Izhod vgrajenih funkcij. */
+	private final OutputSink out;
+
+	/** Vse gorivo izvajanja. */
+	private long totalFuel = Long.MAX_VALUE;
+
+	/** Gorivo, ki se ni dodeljeno stevcu {@link #ticks}. */
+	private long fuel = Long.MAX_VALUE;
+
+	/** Koraki, ki se lahko izvedejo do naslednjega preverjanja omejitev. */
+	private int ticks = 0;
+
+	/** Casovna omejitev v milisekundah (0, ce je ni). */
+	private long timeout = 0;
+
+	/** Cas ({@link System#nanoTime()}), ko se izvajanje ustavi (le ob casovni omejitvi). */
+	private long deadline = 0;
+
+	/** Najnizji naslov, do katerega sega sklad (konec podatkovnega segmenta). */
+	private int stackLimit = 0;
+
+	/**
+	 * Ustvari navidezni stroj s privzeto velikostjo pomnilnika, ki bere s
+	 * standardnega vhoda in pise na skupni izhod {@link Intrinsics#output()}.
+	 */
+	public Machine() {
+		this(Interpreter.memorySize, Interpreter.checkMemory, Intrinsics.in(), Intrinsics.output());
+		setLimits(Interpreter.fuel, Interpreter.timeout);
+	}
+
+	/**
+	 * Ustvari navidezni stroj.
+	 *
+	 * @param memorySize Velikost pomnilnika v bajtih.
+	 * @param checkMemory Ali naj se dostopi do pomnilnika preverjajo.
+	 * @param in Vhod vgrajenih funkcij.
+	 * @param out Izhod vgrajenih funkcij.
+	 */
+	public Machine(int memorySize, boolean checkMemory, Scanner in, OutputSink out) {
+		this.mems = new Memory(memorySize, checkMemory);
+		this.in = in;
+		this.out = out;
+	}
+
+	/**
+	 * Omeji izvajanje programa.
+	 *
+	 * @param fuel Najvecje stevilo korakov (skokov nazaj in klicev) oziroma
+	 *            {@link Long#MAX_VALUE}, ce stevilo korakov ni omejeno.
+	 * @param timeout Casovna omejitev v milisekundah od zagona programa
+	 *            oziroma 0, ce je ni.
+	 */
+	public void setLimits(long fuel, long timeout) {
+		this.totalFuel = fuel;
+		this.fuel = fuel;
+		this.ticks = 0;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Porabi korak goriva; ob izteku goriva ali casa ustavi izvajanje.
+	 *
+	 * @param function Ime funkcije, ki se izvaja.
+	 */
+	public void tick(String function) {
+		if (--ticks < 0)
+			checkLimits(function);
+	}
+
+	private void checkLimits(String function) {
+		if (fuel == 0)
+			throw new ExecutionLimitException("out of fuel", function, totalFuel);
+		if ((deadline != 0) && (System.nanoTime() - deadline > 0))
+			throw new ExecutionLimitException("time limit of " + timeout + " ms exceeded", function, totalFuel - fuel);
+		int batch = (int) Math.min(CHECK_INTERVAL, fuel);
+		fuel -= batch;
+		ticks = batch - 1;
+	}
+
+	/**
+	 * Preveri, ali je klicni zapis, ki ga je pravkar ustvarila funkcija, se
+	 * nad podatkovnim segmentom; sicer ustavi izvajanje.
+	 *
+	 * @param function Ime funkcije, ki se izvaja.
+	 */
+	public void checkStack(String function) {
+		if (sp < stackLimit)
+			throw stackOverflow(function);
+	}
+
+	/**
+	 * Vrne izjemo, s katero se ustavi program, ki je izcrpal sklad: pomnilnik
+	 * navideznega stroja ali sklad Jave pri izvajalnikih, ki funkcije klicejo
+	 * rekurzivno.
+	 *
+	 * @param function Ime funkcije, ki se izvaja.
+	 * @return Izjema, ki jo vrze izvajalnik.
+	 */
+	public ExecutionLimitException stackOverflow(String function) {
+		return new ExecutionLimitException("stack overflow", function, totalFuel - fuel - ticks);
+	}
+
+	/** Vrne vhod vgrajenih funkcij. */
+	public Scanner input() {
+		return in;
+	}
+
+	/** Vrne izhod vgrajenih funkcij. */
+	public OutputSink output() {
+		return out;
+	}
+
+	/**
+	 * Pripravi sklad in klic glavne funkcije programa.
+	 *
+	 * @param program Program.
+	 * @return Glavna funkcija programa.
+	 */
+	public LinkedCode boot(Program program) {
+		LinkedCode main = program.function("main");
+
+		// stack grows downwards from the top of memory, leaving room for arguments of main
+		fp = mems.size - main.frame.sizePars;
+		sp = fp;
+		stackLimit = Linker.DATA_START + program.dataSize;
+		if (stackLimit > sp)
+			Report.error("Data segment does not fit into memory.");
+
+		// set static link and argument of main function to 0
+		mems.storeWord(fp, 0);
+		mems.storeWord(fp + 4, 0);
+
+		if (timeout > 0)
+			deadline = System.nanoTime() + timeout * 1000000;
+
+		return main;
+	}
+
+}
@@ -0,0 +1,90 @@
+package compiler.interpreter;
+
+/**
+ * Omejena tabela rezultatov ciste funkcije.
+ * <p>
+ * Kljuci so argumenti funkcije. Tabela je neposredno preslikana: vsak kljuc
+ * ima natanko eno mesto, nov rezultat pa izpodrine rezultat, ki je bil prej
+ * na tem mestu.
+ */
+class MemoTable {
+
+	/** Funkcija. */
+	final LinkedCode function;
+
+	/** Stevilo argumentov (brez staticne povezave). */
+	final int arity;
+
+	/** Kljuci, po arity besed na mesto. */
+	private final int[] keys;
+
+	/** Rezultati. */
+	private final int[] values;
+
+	/** Zasedena mesta. */
+	private final boolean[] used;
+
+	private final int mask;
+
+	long lookups = 0;
+	long hits = 0;
+	long evictions = 0;
+
+	/**
+	 * Ustvari tabelo.
+	 *
+	 * @param function Funkcija.
+	 * @param capacity Stevilo mest (potenca stevila 2).
+	 */
+	MemoTable(LinkedCode function, int capacity) {
+		this.function = function;
+		this.arity = function.frame.sizePars / 4 - 1;
+		this.keys = new int[capacity * arity];
+		this.values = new int[capacity];
+		this.used = new boolean[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Vrne mesto kljuca.
+	 *
+	 * @param key Tabela s kljucem.
+	 * @param offset Zacetek kljuca v tabeli.
+	 */
+	int slot(int[] key, int offset) {
+		int hash = 0;
+		for (int i = 0; i < arity; i++)
+			hash = (hash + key[offset + i]) * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * Ali je na mestu rezultat za dani kljuc.
+	 */
+	boolean contains(int slot, int[] key, int offset) {
+		lookups++;
+		if (!used[slot]) return false;
+		for (int i = 0; i < arity; i++) {
+			if (keys[slot * arity + i] != key[offset + i]) return false;
+		}
+		hits++;
+		return true;
+	}
+
+	/** Vrne rezultat na mestu. */
+	int value(int slot) {
+		return values[slot];
+	}
+
+	/**
+	 * Shrani rezultat za dani kljuc.
+	 */
+	void put(int[] key, int offset, int value) {
+		int slot = slot(key, offset);
+		if (used[slot]) evictions++;
+		System.arraycopy(key, offset, keys, slot * arity, arity);
+		values[slot] = value;
+		used[slot] = true;
+	}
+
+}
@@ -0,0 +1,126 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.*;
+import compiler.imcode.*;
+
+/**
+ * Izvajanje vmesne kode s pomnjenjem rezultatov cistih funkcij.
+ * <p>
+ * Pred klicem ciste funkcije se rezultat poisce v njeni tabeli rezultatov
+ * ({@link MemoTable}); ce ga ni, se funkcija izvede in rezultat shrani. Ob
+ * koncu se v datoteko z vmesnimi rezultati zapise porocilo o zadetkih.
+ */
+public class MemoizingInterpreter extends Interpreter {
+
+	/** Stevilo mest v tabeli rezultatov posamezne funkcije. */
+	public static int capacity = 1 << 16;
+
+	/** Tabele rezultatov cistih funkcij. */
+	private final IdentityHashMap<LinkedCode, MemoTable> tables = new IdentityHashMap<LinkedCode, MemoTable>();
+
+	/** Tabele aktivacij na skladu (null, ce se rezultat ne shrani). */
+	private MemoTable[] active = new MemoTable[64];
+
+	/** Stevilo aktivacij na skladu. */
+	private int depth = 0;
+
+	/** Kljuci aktivacij na skladu, ki shranjujejo rezultat. */
+	private int[] keys = new int[256];
+
+	/** Prvo prosto mesto v {@link #keys}. */
+	private int top = 0;
+
+	/** Tabela klica, ki se bo izvedel, ker rezultata ni v tabeli. */
+	private MemoTable pending = null;
+
+	public MemoizingInterpreter(ImcCodeGen imcCodeGen) {
+		this(new Linker().link(imcCodeGen.chunks));
+	}
+
+	private MemoizingInterpreter(Program program) {
+		super(program, new Machine());
+		for (LinkedCode function : Purity.pureFunctions(program))
+			tables.put(function, new MemoTable(function, capacity));
+
+		run();
+		report();
+	}
+
+	@Override
+	protected boolean callCompiled(LinkedCode callee) {
+		MemoTable table = tables.get(callee);
+		if (table == null) return false;
+
+		// the key is read while the arguments are still intact
+		if (top + table.arity > keys.length)
+			keys = Arrays.copyOf(keys, 2 * keys.length + table.arity);
+		for (int i = 0; i < table.arity; i++)
+			keys[top + i] = ldM(machine.sp + 4 + 4 * i);
+		int slot = table.slot(keys, top);
+		if (table.contains(slot, keys, top)) {
+			stM(machine.sp, table.value(slot));
+			return true;
+		}
+		pending = table;
+		return false;
+	}
+
+	@Override
+	protected void enter(LinkedCode code) {
+		if (depth == active.length)
+			active = Arrays.copyOf(active, 2 * depth);
+		MemoTable table = (pending != null) && (pending.function == code) ? pending : null;
+		active[depth++] = table;
+		if (table != null) top += table.arity;
+		pending = null;
+
+		super.enter(code);
+	}
+
+	@Override
+	protected int leave(LinkedCode code) {
+		int result = super.leave(code);
+
+		MemoTable table = active[--depth];
+		if (table != null) {
+			top -= table.arity;
+			table.put(keys, top, result);
+		}
+		return result;
+	}
+
+	@Override
+	protected void leaveForTailCall(LinkedCode code) {
+		// the result is not known yet, so it is not stored
+		MemoTable table = active[depth - 1];
+		if (table != null) {
+			top -= table.arity;
+			active[depth - 1] = null;
+		}
+		super.leaveForTailCall(code);
+	}
+
+	/**
+	 * Zapise porocilo o zadetkih v datoteko z vmesnimi rezultati.
+	 */
+	private void report() {
+		ArrayList<MemoTable> reported = new ArrayList<MemoTable>(tables.values());
+		Collections.sort(reported, new Comparator<MemoTable>() {
+			@Override
+			public int compare(MemoTable t1, MemoTable t2) {
+				return Long.compare(t2.lookups, t1.lookups);
+			}
+		});
+		Report.dump(0, "MEMOIZATION:");
+		Report.dump(2, String.format("%-20s %12s %12s %8s %12s", "function", "lookups", "hits", "hit[%]", "evictions"));
+		for (MemoTable table : reported) {
+			String name = table.function.frame.fun.name + " (" + table.function.frame.label.name() + ")";
+			double rate = table.lookups == 0 ? 0 : 100.0 * table.hits / table.lookups;
+			Report.dump(2, String.format("%-20s %12d %12d %8.2f %12d", name, table.lookups, table.hits, rate,
+					table.evictions));
+		}
+	}
+
+}
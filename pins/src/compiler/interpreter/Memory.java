@@ -0,0 +1,108 @@
+package compiler.interpreter;
+
+import compiler.*;
+
+/**
+ * Pomnilnik navideznega stroja.
+ * <p>
+ * Pomnilnik je razdeljen na strani po {@link #PAGE_WORDS} besed, ki so
+ * ustvarjene sele ob prvem pisanju. Naslovi so v bajtih, beseda pa je velika
+ * 4 bajte. Ob vklopljenem preverjanju pomnilnik javi napako ob dostopu izven
+ * meja, neporavnanem dostopu in branju besede, ki se ni bila zapisana.
+ */
+public class Memory {
+
+	/** Dvojiski logaritem velikosti strani v besedah. */
+	private static final int PAGE_BITS = 10;
+
+	/** Velikost strani v besedah. */
+	public static final int PAGE_WORDS = 1 << PAGE_BITS;
+
+	/** Maska za odmik besede znotraj strani. */
+	private static final int PAGE_MASK = PAGE_WORDS - 1;
+
+	/** Velikost pomnilnika v bajtih. */
+	public final int size;
+
+	/** Ali se dostopi do pomnilnika preverjajo. */
+	public final boolean checked;
+
+	/** Tabela strani. */
+	private final int[][] pages;
+
+	/** Biti zapisanih besed za vsako stran (le ob vklopljenem preverjanju). */
+	private final long[][] written;
+
+	/**
+	 * Ustvari nov pomnilnik.
+	 *
+	 * @param size Velikost pomnilnika v bajtih.
+	 * @param checked Ali naj se dostopi do pomnilnika preverjajo.
+	 */
+	public Memory(int size, boolean checked) {
+		int numPages = (size / 4 + PAGE_WORDS - 1) >> PAGE_BITS;
+		this.size = numPages * PAGE_WORDS * 4;
+		this.checked = checked;
+		this.pages = new int[numPages][];
+		this.written = checked ? new long[numPages][] : null;
+	}
+
+	/**
+	 * Prebere besedo iz pomnilnika.
+	 *
+	 * @param address Naslov besede.
+	 * @return Vrednost besede.
+	 */
+	public int loadWord(int address) {
+		if (checked) checkLoad(address);
+		int word = address >> 2;
+		int[] page = pages[word >>> PAGE_BITS];
+		return page == null ? 0 : page[word & PAGE_MASK];
+	}
+
+	/**
+	 * Zapise besedo v pomnilnik.
+	 *
+	 * @param address Naslov besede.
+	 * @param value Vrednost besede.
+	 */
+	public void storeWord(int address, int value) {
+		if (checked) checkStore(address);
+		int word = address >> 2;
+		int[] page = pages[word >>> PAGE_BITS];
+		if (page == null) page = allocate(word >>> PAGE_BITS);
+		page[word & PAGE_MASK] = value;
+	}
+
+	private int[] allocate(int index) {
+		pages[index] = new int[PAGE_WORDS];
+		return pages[index];
+	}
+
+	private void checkLoad(int address) {
+		checkAddress(address);
+		int word = address >> 2;
+		long[] bits = written[word >>> PAGE_BITS];
+		if ((bits == null) || ((bits[(word & PAGE_MASK) >> 6] & (1L << word)) == 0))
+			Report.error("Read of uninitialized memory at address " + address + ".");
+	}
+
+	private void checkStore(int address) {
+		checkAddress(address);
+		int word = address >> 2;
+		long[] bits = written[word >>> PAGE_BITS];
+		if (bits == null) {
+			bits = new long[PAGE_WORDS / 64];
+			written[word >>> PAGE_BITS] = bits;
+		}
+		bits[(word & PAGE_MASK) >> 6] |= 1L << word;
+	}
+
+	private void checkAddress(int address) {
+		if ((address < 0) || (address >= size))
+			Report.error("Memory access out of bounds at address " + address + ".");
+		if ((address & 3) != 0)
+			Report.error("Unaligned memory access at address " + address + ".");
+	}
+
+}
@@ -0,0 +1,214 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.*;
+import compiler.imcode.*;
+
+/**
+ * Prevajalnik linearizirane vmesne kode v izvrsljiva vozlisca.
+ * <p>
+ * Vsak stavek in izraz se enkrat prevede v vozlisce, specializirano glede na
+ * njegovo obliko. Labele se ob tem odstranijo, skoki pa kazejo neposredno na
+ * indekse stavkov.
+ */
+public class NodeCompiler {
+
+	/** Prevedene funkcije. */
+	private final HashMap<LinkedCode, NodeFunction> compiled = new HashMap<LinkedCode, NodeFunction>();
+
+	/**
+	 * Prevede vse funkcije programa.
+	 *
+	 * @param program Program.
+	 * @return Prevedene funkcije.
+	 */
+	public HashMap<LinkedCode, NodeFunction> compile(Program program) {
+		for (LinkedCode function : program.functions())
+			compiled.put(function, new NodeFunction(function));
+		for (NodeFunction function : compiled.values())
+			function.body = compile(function.source);
+		return compiled;
+	}
+
+	/*--- prevajanje ene funkcije ---*/
+
+	/** Prevajana funkcija. */
+	private LinkedCode function;
+
+	/** Indeksi vozlisc, ki ustrezajo stavkom linearizirane kode. */
+	private int[] index;
+
+	private StmtNode[] compile(LinkedCode function) {
+		this.function = function;
+
+		// labels are dropped, so statements get new indices
+		this.index = new int[function.stmts.length + 1];
+		int length = 0;
+		for (int pc = 0; pc < function.stmts.length; pc++) {
+			index[pc] = length;
+			if (!(function.stmts[pc] instanceof ImcLABEL)) length++;
+		}
+		index[function.stmts.length] = length;
+
+		StmtNode[] body = new StmtNode[length];
+		for (int pc = 0; pc < function.stmts.length; pc++) {
+			if (!(function.stmts[pc] instanceof ImcLABEL))
+				body[index[pc]] = compileStmt(function.stmts[pc], pc);
+		}
+		return body;
+	}
+
+	private StmtNode compileStmt(ImcStmt stmt, int pc) {
+		int next = index[pc] + 1;
+		if (stmt instanceof ImcJUMP)
+			return new StmtNode.Jump(index[function.trueTarget[pc]]);
+		if (stmt instanceof ImcCJUMP)
+			return compileCJump(((ImcCJUMP) stmt).cond, index[function.trueTarget[pc]], index[function.falseTarget[pc]]);
+		if (stmt instanceof ImcMOVE) {
+			ImcMOVE move = (ImcMOVE) stmt;
+			if ((move.dst instanceof ImcTEMP) && function.tailCall[pc]) {
+				LinkedCALL call = (LinkedCALL) move.src;
+				return new StmtNode.TailCall(compiled.get(call.callee), compileArgs(call));
+			}
+			if ((move.dst instanceof ImcTEMP) && isCall(move.src)) {
+				LinkedCALL call = (LinkedCALL) move.src;
+				return new StmtNode.Call(((LinkedTEMP) move.dst).reg, compiled.get(call.callee), compileArgs(call), next);
+			}
+			if (move.dst instanceof ImcTEMP)
+				return new StmtNode.MoveTemp(((LinkedTEMP) move.dst).reg, compileExpr(move.src), next);
+			if (move.dst instanceof ImcMEM) {
+				Integer increment = FrameAccess.increment(move, function.frame);
+				FrameAccess access = FrameAccess.of(((ImcMEM) move.dst).expr, function.frame);
+				if (increment != null)
+					return new StmtNode.IncFrameSlot(access.offset, increment, next);
+				if ((access != null) && (access.depth == 0))
+					return new StmtNode.StoreFrameSlot(access.offset, compileExpr(move.src), next);
+				if (access != null)
+					return new StmtNode.StoreUplevel(access.depth, access.offset, compileExpr(move.src), next);
+				ImcExpr address = ((ImcMEM) move.dst).expr;
+				if (isOffset(address))
+					return new StmtNode.StoreOffset(compileExpr(((ImcBINOP) address).limc),
+							((ImcCONST) ((ImcBINOP) address).rimc).value, compileExpr(move.src), next);
+				return new StmtNode.Store(compileExpr(address), compileExpr(move.src), next);
+			}
+		}
+		if ((stmt instanceof ImcEXP) && isCall(((ImcEXP) stmt).expr)) {
+			LinkedCALL call = (LinkedCALL) ((ImcEXP) stmt).expr;
+			return new StmtNode.Call(-1, compiled.get(call.callee), compileArgs(call), next);
+		}
+		if (stmt instanceof ImcEXP)
+			return new StmtNode.Eval(compileExpr(((ImcEXP) stmt).expr), next);
+		Report.error("Internal error: cannot compile " + stmt.getClass().getSimpleName() + " to nodes.");
+		return null;
+	}
+
+	private StmtNode compileCJump(ImcExpr cond, int trueTarget, int falseTarget) {
+		if (cond instanceof ImcBINOP) {
+			ImcBINOP binop = (ImcBINOP) cond;
+			switch (binop.op) {
+			case ImcBINOP.EQU:
+				return new StmtNode.EquJump(compileExpr(binop.limc), compileExpr(binop.rimc), trueTarget, falseTarget);
+			case ImcBINOP.NEQ:
+				return new StmtNode.NeqJump(compileExpr(binop.limc), compileExpr(binop.rimc), trueTarget, falseTarget);
+			case ImcBINOP.LTH:
+				return new StmtNode.LthJump(compileExpr(binop.limc), compileExpr(binop.rimc), trueTarget, falseTarget);
+			case ImcBINOP.GTH:
+				return new StmtNode.GthJump(compileExpr(binop.limc), compileExpr(binop.rimc), trueTarget, falseTarget);
+			case ImcBINOP.LEQ:
+				return new StmtNode.LeqJump(compileExpr(binop.limc), compileExpr(binop.rimc), trueTarget, falseTarget);
+			case ImcBINOP.GEQ:
+				return new StmtNode.GeqJump(compileExpr(binop.limc), compileExpr(binop.rimc), trueTarget, falseTarget);
+			}
+		}
+		return new StmtNode.CJump(compileExpr(cond), trueTarget, falseTarget);
+	}
+
+	private ExprNode compileExpr(ImcExpr expr) {
+		if (expr instanceof ImcCONST)
+			return new ExprNode.Const(((ImcCONST) expr).value);
+		if (expr instanceof ImcTEMP)
+			return new ExprNode.Temp(((LinkedTEMP) expr).reg);
+		if (expr instanceof ImcBINOP)
+			return compileBinop((ImcBINOP) expr);
+		if (expr instanceof ImcMEM) {
+			FrameAccess access = FrameAccess.of(((ImcMEM) expr).expr, function.frame);
+			if ((access != null) && (access.depth == 0))
+				return new ExprNode.LoadFrameSlot(access.offset);
+			if (access != null)
+				return new ExprNode.LoadUplevel(access.depth, access.offset);
+			ImcExpr address = ((ImcMEM) expr).expr;
+			if (isOffset(address))
+				return new ExprNode.LoadOffset(compileExpr(((ImcBINOP) address).limc),
+						((ImcCONST) ((ImcBINOP) address).rimc).value);
+			return new ExprNode.Load(compileExpr(address));
+		}
+		if (expr instanceof ImcNAME) {
+			String name = ((ImcNAME) expr).label.name();
+			if (name.equals("FP"))
+				return new ExprNode.FramePointer();
+			if (name.equals("SP"))
+				return new ExprNode.StackPointer();
+			Report.error("Internal error: unresolved name " + name + ".");
+		}
+		if (expr instanceof ImcCALL)
+			return compileCall((ImcCALL) expr);
+		Report.error("Internal error: cannot compile " + expr.getClass().getSimpleName() + " to nodes.");
+		return null;
+	}
+
+	/** Ali je naslov oblike e + CONST. */
+	private static boolean isOffset(ImcExpr address) {
+		return (address instanceof ImcBINOP) && (((ImcBINOP) address).op == ImcBINOP.ADD)
+				&& (((ImcBINOP) address).rimc instanceof ImcCONST);
+	}
+
+	private ExprNode compileBinop(ImcBINOP binop) {
+		if ((binop.op == ImcBINOP.ADD) && (binop.rimc instanceof ImcCONST))
+			return new ExprNode.AddConst(compileExpr(binop.limc), ((ImcCONST) binop.rimc).value);
+		ExprNode l = compileExpr(binop.limc);
+		ExprNode r = compileExpr(binop.rimc);
+		switch (binop.op) {
+		case ImcBINOP.ADD: return new ExprNode.Add(l, r);
+		case ImcBINOP.SUB: return new ExprNode.Sub(l, r);
+		case ImcBINOP.MUL: return new ExprNode.Mul(l, r);
+		case ImcBINOP.DIV: return new ExprNode.Div(l, r);
+		case ImcBINOP.MOD: return new ExprNode.Mod(l, r);
+		case ImcBINOP.EQU: return new ExprNode.Equ(l, r);
+		case ImcBINOP.NEQ: return new ExprNode.Neq(l, r);
+		case ImcBINOP.LTH: return new ExprNode.Lth(l, r);
+		case ImcBINOP.GTH: return new ExprNode.Gth(l, r);
+		case ImcBINOP.LEQ: return new ExprNode.Leq(l, r);
+		case ImcBINOP.GEQ: return new ExprNode.Geq(l, r);
+		case ImcBINOP.AND: return new ExprNode.And(l, r);
+		case ImcBINOP.OR: return new ExprNode.Or(l, r);
+		}
+		Report.error("Internal error.");
+		return null;
+	}
+
+	/** Ali je izraz klic uporabniske funkcije. */
+	private static boolean isCall(ImcExpr expr) {
+		return (expr instanceof LinkedCALL) && (((LinkedCALL) expr).intrinsic == null);
+	}
+
+	private ExprNode[] compileArgs(ImcCALL call) {
+		ExprNode[] args = new ExprNode[call.args.size()];
+		int i = 0;
+		for (ImcExpr arg : call.args)
+			args[i++] = compileExpr(arg);
+		return args;
+	}
+
+	private ExprNode compileCall(ImcCALL call) {
+		ExprNode[] args = compileArgs(call);
+
+		// predefined functions
+		Intrinsic intrinsic = ((LinkedCALL) call).intrinsic;
+		if (intrinsic != null)
+			return new ExprNode.Native(intrinsic, args);
+
+		return new ExprNode.Call(compiled.get(((LinkedCALL) call).callee), args);
+	}
+
+}
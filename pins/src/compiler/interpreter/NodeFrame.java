@@ -0,0 +1,106 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+/**
+ * Klicni zapis funkcije, ki jo izvajajo izvrsljiva vozlisca.
+ * <p>
+ * Zapisi tvorijo sklad aktivacij: vsak zapis hrani zapis za funkcije, ki jih
+ * klice, in ta se ponovno uporabi ob vseh nadaljnjih klicih na isti globini,
+ * zato se zapisi ne ustvarjajo ob vsakem klicu.
+ */
+final class NodeFrame {
+
+	/** Navidezni stroj. */
+	final Machine machine;
+
+	/** Pomnilnik navideznega stroja. */
+	final Memory mems;
+
+	/** Zapis klicoce funkcije (null za prvi zapis na skladu). */
+	final NodeFrame caller;
+
+	/** Funkcija, ki se izvaja v tem zapisu. */
+	NodeFunction function;
+
+	/** Registri (zacasne spremenljivke). */
+	int[] regs;
+
+	/** Kazalec FP. */
+	int fp;
+
+	/** Kazalec SP. */
+	int sp;
+
+	/** Funkcija, klicana iz stavka {@link StmtNode.Call} (null, ce je ni). */
+	NodeFunction called = null;
+
+	/** Register za rezultat klica (-1, ce se rezultat zavrze). */
+	int resultReg;
+
+	/** Indeks stavka, s katerim se funkcija nadaljuje po klicu. */
+	int resume;
+
+	/** Funkcija, klicana v repnem polozaju (null, ce je ni). */
+	NodeFunction tailCallee = null;
+
+	/**
+	 * Argumenti klica v repnem polozaju. Polje se ohrani za vse funkcije,
+	 * ki po vrsti uporabijo ta klicni zapis.
+	 */
+	int[] tailArgs = new int[0];
+
+	/** Stevilo argumentov klica v repnem polozaju. */
+	int numTailArgs = 0;
+
+	/** Zapis funkcij, ki jih klice ta funkcija (null, dokler ga ni treba ustvariti). */
+	private NodeFrame callee = null;
+
+	NodeFrame(Machine machine, NodeFrame caller) {
+		this.machine = machine;
+		this.mems = machine.mems;
+		this.caller = caller;
+		this.regs = new int[0];
+	}
+
+	/**
+	 * Pripravi zapis za klicano funkcijo: ob vstopu v funkcijo in ob klicu v
+	 * repnem polozaju, ko klicana funkcija uporabi sproscen klicni zapis
+	 * klicoce funkcije.
+	 *
+	 * @param function Klicana funkcija.
+	 */
+	void enter(NodeFunction function) {
+		int numRegs = function.source.numRegs;
+		if (regs.length < numRegs)
+			regs = new int[numRegs];
+		else
+			Arrays.fill(regs, 0, numRegs, 0);
+		this.function = function;
+		fp = machine.fp;
+		sp = machine.sp;
+		called = null;
+		tailCallee = null;
+		numTailArgs = 0;
+	}
+
+	/** Vrne zapis za funkcije, ki jih klice ta funkcija. */
+	NodeFrame callee() {
+		if (callee == null)
+			callee = new NodeFrame(machine, this);
+		return callee;
+	}
+
+	/**
+	 * Vrne polje za argumente klica v repnem polozaju.
+	 *
+	 * @param numArgs Stevilo argumentov.
+	 */
+	int[] tailArgs(int numArgs) {
+		if (tailArgs.length < numArgs)
+			tailArgs = new int[numArgs];
+		numTailArgs = numArgs;
+		return tailArgs;
+	}
+
+}
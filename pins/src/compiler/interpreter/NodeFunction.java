@@ -0,0 +1,120 @@
+package compiler.interpreter;
+
+import compiler.frames.*;
+
+/**
+ * Funkcija, prevedena v izvrsljiva vozlisca.
+ */
+public class NodeFunction {
+
+	/** Povezana koda funkcije, iz katere so nastala vozlisca. */
+	public final LinkedCode source;
+
+	/** Klicni zapis funkcije. */
+	public final FrmFrame frame;
+
+	/** Stavki funkcije (brez label). */
+	StmtNode[] body;
+
+	NodeFunction(LinkedCode source) {
+		this.source = source;
+		this.frame = source.frame;
+	}
+
+	/**
+	 * Izvede klic funkcije v novem klicnem zapisu.
+	 *
+	 * @param machine Navidezni stroj.
+	 */
+	public void invoke(Machine machine) {
+		invoke(new NodeFrame(machine, null));
+	}
+
+	/**
+	 * Izvede klic funkcije.
+	 * <p>
+	 * Klici iz stavkov {@link StmtNode.Call} se ne izvajajo rekurzivno, temvec
+	 * se izvajanje nadaljuje v zapisu klicane funkcije v isti zanki. Rekurzivno
+	 * se izvedejo le klici, vgnezdeni v izraze; program, ki pri tem izcrpa
+	 * sklad Jave, ustavi izjema {@link ExecutionLimitException}, enako kot
+	 * program, ki izcrpa pomnilnik navideznega stroja.
+	 *
+	 * @param root Klicni zapis, ki ga uporabi klicana funkcija.
+	 */
+	void invoke(NodeFrame root) {
+		Machine machine = root.machine;
+		Memory mems = machine.mems;
+		NodeFrame activation = root;
+		NodeFunction function = this;
+		enter(activation, function);
+		int pc = 0;
+		while (true) {
+			StmtNode[] body = function.body;
+			try {
+				while (pc < body.length) {
+					int next = body[pc].execute(activation);
+					if (next <= pc) machine.tick(function.frame.fun.name);
+					pc = next;
+				}
+			} catch (StackOverflowError __) {
+				throw machine.stackOverflow(function.frame.fun.name);
+			}
+
+			// the arguments are already stored, the callee continues in its own frame
+			if (activation.called != null) {
+				function = activation.called;
+				activation = activation.callee();
+				enter(activation, function);
+				pc = 0;
+				continue;
+			}
+
+			// epilogue
+			machine.sp = activation.fp;
+			machine.fp = mems.loadWord(machine.sp - function.frame.sizeLocs - 4);
+			if (activation.tailCallee != null) {
+				// the callee in tail position reuses the released frame
+				for (int i = 0; i < activation.numTailArgs; i++)
+					mems.storeWord(machine.sp + 4 * i, activation.tailArgs[i]);
+				function = activation.tailCallee;
+				enter(activation, function);
+				pc = 0;
+				continue;
+			}
+			int result = activation.regs[LinkedCode.RV_REG];
+			mems.storeWord(machine.sp, result);
+			if (activation == root)
+				return;
+
+			// the caller continues after its call
+			activation = activation.caller;
+			function = activation.function;
+			activation.called = null;
+			if (activation.resultReg >= 0)
+				activation.regs[activation.resultReg] = result;
+			pc = activation.resume;
+		}
+	}
+
+	/**
+	 * Ustvari klicni zapis funkcije v pomnilniku in pripravi zapis za vozlisca.
+	 *
+	 * @param activation Zapis za vozlisca.
+	 * @param function Klicana funkcija.
+	 */
+	private static void enter(NodeFrame activation, NodeFunction function) {
+		Machine machine = activation.machine;
+		FrmFrame frame = function.frame;
+		machine.tick(frame.fun.name);
+
+		// prologue
+		machine.mems.storeWord(machine.sp - frame.sizeLocs - 4, machine.fp);
+		machine.fp = machine.sp;
+		machine.sp = machine.sp - frame.size();
+		machine.checkStack(frame.fun.name);
+
+		activation.enter(function);
+		activation.regs[LinkedCode.FP_REG] = activation.fp;
+	}
+
+}
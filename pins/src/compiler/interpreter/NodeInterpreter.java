@@ -0,0 +1,32 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.imcode.*;
+
+/**
+ * Izvajanje programa, prevedenega v izvrsljiva vozlisca.
+ * <p>
+ * Uporablja isti pomnilnik in isto obliko klicnih zapisov kot
+ * {@link Interpreter}.
+ */
+public class NodeInterpreter {
+
+	public NodeInterpreter(ImcCodeGen imcCodeGen) {
+		this(new Linker().link(imcCodeGen.chunks), new Machine());
+	}
+
+	/**
+	 * Izvede glavno funkcijo programa.
+	 *
+	 * @param program Program.
+	 * @param machine Navidezni stroj, na katerem naj se program izvede.
+	 */
+	public NodeInterpreter(Program program, Machine machine) {
+		HashMap<LinkedCode, NodeFunction> functions = new NodeCompiler().compile(program);
+
+		functions.get(machine.boot(program)).invoke(machine);
+		machine.output().flush();
+	}
+
+}
@@ -0,0 +1,102 @@
+package compiler.interpreter;
+
+import java.io.*;
+
+import compiler.*;
+
+/**
+ * Izhod programa, ki ga izvaja navidezni stroj.
+ * <p>
+ * Izpisi se zbirajo v medpomnilniku in se zapisejo v izhodni tok sele, ko se
+ * medpomnilnik napolni ali ko se izhod izrecno izprazni (ob koncu izvajanja
+ * programa in pred branjem vhoda).
+ */
+public class OutputSink {
+
+	/** Privzeta velikost medpomnilnika v bajtih. */
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	/** Izhodni tok. */
+	private final OutputStream stream;
+
+	/** Medpomnilnik. */
+	private final byte[] buffer;
+
+	/** Stevilo bajtov v medpomnilniku. */
+	private int length = 0;
+
+	/**
+	 * Ustvari izhod s privzeto velikostjo medpomnilnika.
+	 *
+	 * @param stream Izhodni tok.
+	 */
+	public OutputSink(OutputStream stream) {
+		this(stream, BUFFER_SIZE);
+	}
+
+	/**
+	 * Ustvari izhod.
+	 *
+	 * @param stream Izhodni tok.
+	 * @param bufferSize Velikost medpomnilnika v bajtih.
+	 */
+	public OutputSink(OutputStream stream, int bufferSize) {
+		this.stream = stream;
+		this.buffer = new byte[Math.max(bufferSize, 16)];
+	}
+
+	/**
+	 * Izpise celo stevilo in konec vrstice.
+	 *
+	 * @param value Stevilo.
+	 */
+	public void putInt(int value) {
+		// at most 11 characters and a newline
+		if (length + 12 > buffer.length) flush();
+
+		long digits = value;
+		if (digits < 0) {
+			buffer[length++] = '-';
+			digits = -digits;
+		}
+		int start = length;
+		do {
+			buffer[length++] = (byte) ('0' + (int) (digits % 10));
+			digits /= 10;
+		} while (digits != 0);
+
+		// digits were written from the least significant one
+		for (int i = start, j = length - 1; i < j; i++, j--) {
+			byte digit = buffer[i];
+			buffer[i] = buffer[j];
+			buffer[j] = digit;
+		}
+		buffer[length++] = '\n';
+	}
+
+	/**
+	 * Izpise niz.
+	 *
+	 * @param string Niz.
+	 */
+	public void print(String string) {
+		for (int i = 0; i < string.length(); i++) {
+			if (length == buffer.length) flush();
+			buffer[length++] = (byte) string.charAt(i);
+		}
+	}
+
+	/**
+	 * Zapise vsebino medpomnilnika v izhodni tok.
+	 */
+	public void flush() {
+		try {
+			stream.write(buffer, 0, length);
+			stream.flush();
+		} catch (IOException e) {
+			Report.error("Cannot write program output (" + e.getMessage() + ").");
+		}
+		length = 0;
+	}
+
+}
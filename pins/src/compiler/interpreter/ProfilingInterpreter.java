@@ -0,0 +1,154 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.*;
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Izvajanje vmesne kode z merjenjem profila izvajanja.
+ * <p>
+ * Za vsak klicni zapis se belezijo stevilo klicev ter celotni (vkljucno s
+ * klicanimi funkcijami) in lastni cas izvajanja, za vsako vrsto vozlisc vmesne
+ * kode pa stevilo izvedb. Porocilo se zapise v datoteko z vmesnimi rezultati.
+ * Merjenje je v celoti v tem podrazredu, zato navaden {@link Interpreter}
+ * nima z njim nobenega dela.
+ */
+public class ProfilingInterpreter extends Interpreter {
+
+	/** Profil klicnega zapisa. */
+	private static class FunctionProfile {
+
+		final FrmFrame frame;
+
+		long calls = 0;
+
+		/** Stevilo aktivacij na skladu. */
+		int open = 0;
+
+		/** Celotni cas v nanosekundah. */
+		long inclusive = 0;
+
+		/** Lastni cas v nanosekundah. */
+		long exclusive = 0;
+
+		FunctionProfile(FrmFrame frame) {
+			this.frame = frame;
+		}
+
+	}
+
+	/** Profili klicnih zapisov. */
+	private final HashMap<FrmFrame, FunctionProfile> functions = new HashMap<FrmFrame, FunctionProfile>();
+
+	/** Stevilo izvedb posameznih vrst vozlisc. */
+	private final HashMap<Class<?>, long[]> nodes = new HashMap<Class<?>, long[]>();
+
+	/** Profili funkcij na skladu aktivacij. */
+	private final ArrayList<FunctionProfile> active = new ArrayList<FunctionProfile>();
+
+	/** Zacetni casi aktivacij na skladu. */
+	private long[] starts = new long[64];
+
+	/** Casi, porabljeni v klicanih funkcijah aktivacij na skladu. */
+	private long[] children = new long[64];
+
+	public ProfilingInterpreter(ImcCodeGen imcCodeGen) {
+		super(new Linker().link(imcCodeGen.chunks), new Machine());
+
+		run();
+		report();
+	}
+
+	@Override
+	protected void enter(LinkedCode code) {
+		FunctionProfile profile = functions.get(code.frame);
+		if (profile == null) {
+			profile = new FunctionProfile(code.frame);
+			functions.put(code.frame, profile);
+		}
+		profile.calls++;
+		profile.open++;
+
+		int depth = active.size();
+		if (depth == starts.length) {
+			starts = Arrays.copyOf(starts, 2 * depth);
+			children = Arrays.copyOf(children, 2 * depth);
+		}
+		active.add(profile);
+		children[depth] = 0;
+		starts[depth] = System.nanoTime();
+
+		super.enter(code);
+	}
+
+	@Override
+	protected int leave(LinkedCode code) {
+		int result = super.leave(code);
+
+		int depth = active.size() - 1;
+		long time = System.nanoTime() - starts[depth];
+		FunctionProfile profile = active.remove(depth);
+		profile.exclusive += time - children[depth];
+
+		// recursive activations are already included in the outermost one
+		if (--profile.open == 0)
+			profile.inclusive += time;
+		if (depth > 0)
+			children[depth - 1] += time;
+		return result;
+	}
+
+	@Override
+	protected void executed(ImcStmt instruction) {
+		count(instruction);
+	}
+
+	@Override
+	public int evalInt(ImcExpr instruction) {
+		count(instruction);
+		return super.evalInt(instruction);
+	}
+
+	private void count(ImcCode instruction) {
+		long[] count = nodes.get(instruction.getClass());
+		if (count == null) {
+			count = new long[1];
+			nodes.put(instruction.getClass(), count);
+		}
+		count[0]++;
+	}
+
+	/**
+	 * Zapise porocilo o profilu v datoteko z vmesnimi rezultati.
+	 */
+	private void report() {
+		ArrayList<FunctionProfile> profiles = new ArrayList<FunctionProfile>(functions.values());
+		Collections.sort(profiles, new Comparator<FunctionProfile>() {
+			@Override
+			public int compare(FunctionProfile p1, FunctionProfile p2) {
+				return Long.compare(p2.exclusive, p1.exclusive);
+			}
+		});
+		Report.dump(0, "PROFILE:");
+		Report.dump(2, String.format("%-20s %12s %14s %14s", "function", "calls", "inclusive[us]", "exclusive[us]"));
+		for (FunctionProfile profile : profiles) {
+			String name = profile.frame.fun.name + " (" + profile.frame.label.name() + ")";
+			Report.dump(2, String.format("%-20s %12d %14d %14d", name, profile.calls,
+					profile.inclusive / 1000, profile.exclusive / 1000));
+		}
+
+		ArrayList<Map.Entry<Class<?>, long[]>> counts = new ArrayList<Map.Entry<Class<?>, long[]>>(nodes.entrySet());
+		Collections.sort(counts, new Comparator<Map.Entry<Class<?>, long[]>>() {
+			@Override
+			public int compare(Map.Entry<Class<?>, long[]> e1, Map.Entry<Class<?>, long[]> e2) {
+				return Long.compare(e2.getValue()[0], e1.getValue()[0]);
+			}
+		});
+		Report.dump(2, String.format("%-20s %12s", "node", "executed"));
+		for (Map.Entry<Class<?>, long[]> count : counts)
+			Report.dump(2, String.format("%-20s %12d", count.getKey().getSimpleName(), count.getValue()[0]));
+	}
+
+}
@@ -0,0 +1,90 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.*;
+import compiler.frames.*;
+
+/**
+ * Program, povezan za izvajanje na navideznem stroju.
+ * <p>
+ * Program ustvari {@link Linker} in se po tem ne spreminja: funkcije so
+ * dostopne prek vstopnih label, podatki pa imajo dolocene naslove v
+ * podatkovnem segmentu.
+ */
+public class Program {
+
+	/** Povezane funkcije, dostopne prek vstopnih label, v vrstnem redu fragmentov. */
+	private final Map<FrmLabel, LinkedCode> functions;
+
+	/** Naslovi podatkov. */
+	private final Map<FrmLabel, Integer> data;
+
+	/** Velikost podatkovnega segmenta v bajtih. */
+	public final int dataSize;
+
+	Program(LinkedHashMap<FrmLabel, LinkedCode> functions, HashMap<FrmLabel, Integer> data, int dataSize) {
+		this.functions = Collections.unmodifiableMap(new LinkedHashMap<FrmLabel, LinkedCode>(functions));
+		this.data = Collections.unmodifiableMap(new HashMap<FrmLabel, Integer>(data));
+		this.dataSize = dataSize;
+	}
+
+	/**
+	 * Vrne vse funkcije programa.
+	 *
+	 * @return Povezane kode funkcij.
+	 */
+	public Collection<LinkedCode> functions() {
+		return functions.values();
+	}
+
+	/**
+	 * Vrne funkcijo z dano vstopno labelo.
+	 *
+	 * @param label Vstopna labela funkcije.
+	 * @return Povezana koda funkcije.
+	 */
+	public LinkedCode function(FrmLabel label) {
+		return functions.get(label);
+	}
+
+	/**
+	 * Vrne funkcijo z dano vstopno labelo oziroma javi napako, ce je ni.
+	 *
+	 * @param label Vstopna labela funkcije.
+	 * @return Povezana koda funkcije.
+	 */
+	public LinkedCode resolve(FrmLabel label) {
+		LinkedCode code = functions.get(label);
+		if (code == null)
+			Report.error("Undefined function " + label.name() + ".");
+		return code;
+	}
+
+	/**
+	 * Vrne funkcijo z danim imenom, definirano na najvisjem nivoju programa.
+	 * Gnezdene funkcije z enakim imenom se ne upostevajo.
+	 *
+	 * @param name Ime funkcije.
+	 * @return Povezana koda funkcije.
+	 */
+	public LinkedCode function(String name) {
+		for (LinkedCode code : functions.values()) {
+			if ((code.frame.level == 0) && code.frame.fun.name.equals(name))
+				return code;
+		}
+		Report.error("Undefined function " + name + ".");
+		return null;
+	}
+
+	/**
+	 * Vrne naslov podatkov z dano labelo.
+	 *
+	 * @param label Labela podatkov.
+	 * @return Naslov podatkov oziroma null, ce podatkov ni.
+	 */
+	public Integer dataAddress(FrmLabel label) {
+		return data.get(label);
+	}
+
+}
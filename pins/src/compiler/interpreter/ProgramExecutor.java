@@ -0,0 +1,130 @@
+package compiler.interpreter;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import compiler.*;
+
+/**
+ * Hkratno izvajanje vec programov v istem procesu.
+ * <p>
+ * Vsaka naloga se izvede na svojem navideznem stroju ({@link Machine}) z
+ * lastnim pomnilnikom, vhodom in izhodom. Povezan program se med izvajanjem ne
+ * spreminja, zato ga lahko hkrati izvaja vec nalog. Prevajanje izvorne kode v
+ * program ({@link Linker}) ni vzporedno in mora potekati v eni niti.
+ */
+public class ProgramExecutor {
+
+	/** Velikost sklada niti, ki jih ustvari izvajalnik (prevedeni nivoji rekurzivno klicejo metode JVM). */
+	public static final long STACK_SIZE = 1 << 24;
+
+	/** Niti, na katerih se izvajajo naloge. */
+	private final ExecutorService executor;
+
+	/** Velikost pomnilnika navideznega stroja posamezne naloge. */
+	private final int memorySize;
+
+	/** Najvecje stevilo korakov posamezne naloge. */
+	private long fuel = Long.MAX_VALUE;
+
+	/** Casovna omejitev posamezne naloge v milisekundah (0, ce je ni). */
+	private long timeout = 0;
+
+	/**
+	 * Ustvari izvajalnik z danim stevilom niti.
+	 *
+	 * @param threads Stevilo niti.
+	 */
+	public ProgramExecutor(int threads) {
+		this(Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(null, runnable, "pins-executor", STACK_SIZE);
+				thread.setDaemon(true);
+				return thread;
+			}
+		}), Interpreter.memorySize);
+	}
+
+	/**
+	 * Ustvari izvajalnik, ki naloge izvaja na danih nitih, npr. na navideznih
+	 * nitih ali na skupnem bazenu niti aplikacije.
+	 *
+	 * @param executor Niti, na katerih se izvajajo naloge.
+	 * @param memorySize Velikost pomnilnika navideznega stroja posamezne naloge.
+	 */
+	public ProgramExecutor(ExecutorService executor, int memorySize) {
+		this.executor = executor;
+		this.memorySize = memorySize;
+	}
+
+	/**
+	 * Omeji izvajanje nalog, ki bodo dodane v prihodnje. Naloga, ki preseze
+	 * omejitev, se konca z izjemo {@link ExecutionLimitException}.
+	 *
+	 * @param fuel Najvecje stevilo korakov (skokov nazaj in klicev) oziroma
+	 *            {@link Long#MAX_VALUE}, ce stevilo korakov ni omejeno.
+	 * @param timeout Casovna omejitev v milisekundah od zacetka izvajanja
+	 *            naloge oziroma 0, ce je ni.
+	 */
+	public void setLimits(long fuel, long timeout) {
+		this.fuel = fuel;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Doda nalogo, ki izvede program.
+	 *
+	 * @param program Program.
+	 * @param engine Izvajalnik (tree, nodes, bytecode ali jvm).
+	 * @param input Vhod programa.
+	 * @param output Izhod programa.
+	 * @return Izvajanje naloge; ob koncu, tudi ob ustavitvi, je izhod programa
+	 *         ze izpraznjen.
+	 */
+	public Future<Void> submit(final Program program, final String engine, InputStream input, OutputStream output) {
+		final Machine machine = new Machine(memorySize, Interpreter.checkMemory,
+				new Scanner(new BufferedInputStream(input)), new OutputSink(output));
+		machine.setLimits(fuel, timeout);
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				try {
+					run(program, engine, machine);
+				} finally {
+					machine.output().flush();
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Izvede program na danem navideznem stroju.
+	 *
+	 * @param program Program.
+	 * @param engine Izvajalnik (tree, nodes, bytecode ali jvm).
+	 * @param machine Navidezni stroj.
+	 */
+	public static void run(Program program, String engine, Machine machine) {
+		if (engine.equals("tree"))
+			new Interpreter(program, machine).run();
+		else if (engine.equals("nodes"))
+			new NodeInterpreter(program, machine);
+		else if (engine.equals("bytecode"))
+			new BytecodeInterpreter(program, machine);
+		else if (engine.equals("jvm"))
+			new JvmInterpreter(program, machine);
+		else
+			Report.error("Unknown engine " + engine + ".");
+	}
+
+	/**
+	 * Zakljuci izvajalnik; ze dodane naloge se se izvedejo.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+}
@@ -0,0 +1,391 @@
+package compiler.interpreter;
+
+import java.io.*;
+import java.util.*;
+
+import compiler.*;
+import compiler.abstr.tree.*;
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Zapis prevedenega programa v binarno datoteko (.pinsc) in branje iz nje.
+ * <p>
+ * Datoteka vsebuje fragmente vmesne kode: klicne zapise in linearizirano kodo
+ * funkcij ter podatkovne fragmente. Prebrani fragmenti se povezejo enako kot
+ * fragmenti, ki jih ustvari {@link ImcCodeGen}, zato za izvajanje programa ni
+ * treba ponovno izvesti faz prevajanja.
+ * <p>
+ * Datoteka se zacne z oznako in razlicico formata, ki jima sledijo tabela
+ * label (za vsako labelo oznaka, ali je vstopna labela vgrajene funkcije, in
+ * ime), stevilo zacasnih spremenljivk in fragmenti. Cela stevila so
+ * zapisana v spremenljivi dolzini (po 7 bitov na bajt), predznacena pa v
+ * cik-cak kodiranju.
+ */
+public class ProgramFile {
+
+	/** Oznaka na zacetku datoteke. */
+	private static final int MAGIC = 0x50494e53;
+
+	/** Razlicica formata. */
+	private static final int VERSION = 2;
+
+	private static final int DATA_CHUNK = 0;
+	private static final int CODE_CHUNK = 1;
+
+	private static final int MOVE = 0;
+	private static final int EXP = 1;
+	private static final int JUMP = 2;
+	private static final int CJUMP = 3;
+	private static final int LABEL = 4;
+	private static final int CONST = 5;
+	private static final int TEMP = 6;
+	private static final int BINOP = 7;
+	private static final int MEM = 8;
+	private static final int NAME = 9;
+	private static final int CALL = 10;
+
+	/*--- zapisovanje ---*/
+
+	/**
+	 * Zapise fragmente vmesne kode v datoteko. Kodni fragmenti se po potrebi
+	 * linearizirajo.
+	 *
+	 * @param chunks Fragmenti vmesne kode.
+	 * @param fileName Ime datoteke.
+	 */
+	public static void write(LinkedList<ImcChunk> chunks, String fileName) {
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+			new ProgramFile().write(chunks, out);
+			out.close();
+		} catch (IOException e) {
+			Report.error("Cannot write program file '" + fileName + "'.");
+		}
+	}
+
+	/**
+	 * Indeksi label v tabeli imen. Labele so enake, ce imajo isti objekt imena
+	 * (razlicne gnezdene funkcije imajo lahko enako ime), zato se kljucem
+	 * primerja identiteta.
+	 */
+	private final IdentityHashMap<String, Integer> labels = new IdentityHashMap<String, Integer>();
+
+	/** Labele po indeksih. */
+	private final ArrayList<FrmLabel> labelList = new ArrayList<FrmLabel>();
+
+	/** Indeksi zacasnih spremenljivk. */
+	private final HashMap<FrmTemp, Integer> temps = new HashMap<FrmTemp, Integer>();
+
+	private void write(LinkedList<ImcChunk> chunks, DataOutputStream out) throws IOException {
+		// linearize first, so that labels and temps of the whole program are known
+		for (ImcChunk chunk : chunks) {
+			if (chunk instanceof ImcCodeChunk) {
+				ImcCodeChunk c = (ImcCodeChunk) chunk;
+				if (c.lincode == null)
+					c.lincode = new ImcCanonicalizer(c.frame).linear(c.imcode);
+			}
+		}
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		DataOutputStream code = new DataOutputStream(body);
+		writeInt(code, chunks.size());
+		for (ImcChunk chunk : chunks) {
+			if (chunk instanceof ImcDataChunk) {
+				ImcDataChunk d = (ImcDataChunk) chunk;
+				code.write(DATA_CHUNK);
+				writeLabel(code, d.label);
+				writeInt(code, d.size);
+			} else {
+				ImcCodeChunk c = (ImcCodeChunk) chunk;
+				code.write(CODE_CHUNK);
+				writeFrame(code, c.frame);
+				LinkedList<ImcStmt> stmts = ((ImcSEQ) c.lincode).stmts;
+				writeInt(code, stmts.size());
+				for (ImcStmt stmt : stmts)
+					writeStmt(code, stmt);
+			}
+		}
+
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		writeInt(out, labelList.size());
+		for (FrmLabel label : labelList) {
+			out.writeBoolean(Intrinsics.get(label) != null);
+			out.writeUTF(label.name());
+		}
+		writeInt(out, temps.size());
+		body.writeTo(out);
+	}
+
+	private void writeFrame(DataOutputStream out, FrmFrame frame) throws IOException {
+		out.writeUTF(frame.fun.name);
+		writeInt(out, frame.level);
+		writeLabel(out, frame.label);
+		writeInt(out, frame.numPars);
+		writeInt(out, frame.sizePars);
+		writeInt(out, frame.sizeLocs);
+		writeInt(out, frame.sizeFPRA);
+		writeInt(out, frame.sizeTmps);
+		writeInt(out, frame.sizeRegs);
+		writeInt(out, frame.sizeArgs);
+		writeTemp(out, frame.FP);
+		writeTemp(out, frame.RV);
+	}
+
+	private void writeStmt(DataOutputStream out, ImcStmt stmt) throws IOException {
+		if (stmt instanceof ImcMOVE) {
+			out.write(MOVE);
+			writeExpr(out, ((ImcMOVE) stmt).dst);
+			writeExpr(out, ((ImcMOVE) stmt).src);
+		} else if (stmt instanceof ImcEXP) {
+			out.write(EXP);
+			writeExpr(out, ((ImcEXP) stmt).expr);
+		} else if (stmt instanceof ImcJUMP) {
+			out.write(JUMP);
+			writeLabel(out, ((ImcJUMP) stmt).label);
+		} else if (stmt instanceof ImcCJUMP) {
+			ImcCJUMP cjump = (ImcCJUMP) stmt;
+			out.write(CJUMP);
+			writeExpr(out, cjump.cond);
+			writeLabel(out, cjump.trueLabel);
+			writeLabel(out, cjump.falseLabel);
+		} else if (stmt instanceof ImcLABEL) {
+			out.write(LABEL);
+			writeLabel(out, ((ImcLABEL) stmt).label);
+		} else
+			Report.error("Internal error: cannot write " + stmt.getClass().getSimpleName() + ".");
+	}
+
+	private void writeExpr(DataOutputStream out, ImcExpr expr) throws IOException {
+		if (expr instanceof ImcCONST) {
+			out.write(CONST);
+			writeInt(out, zigZag(((ImcCONST) expr).value));
+		} else if (expr instanceof ImcTEMP) {
+			out.write(TEMP);
+			writeTemp(out, ((ImcTEMP) expr).temp);
+		} else if (expr instanceof ImcBINOP) {
+			ImcBINOP binop = (ImcBINOP) expr;
+			out.write(BINOP);
+			out.write(binop.op);
+			writeExpr(out, binop.limc);
+			writeExpr(out, binop.rimc);
+		} else if (expr instanceof ImcMEM) {
+			out.write(MEM);
+			writeExpr(out, ((ImcMEM) expr).expr);
+		} else if (expr instanceof ImcNAME) {
+			out.write(NAME);
+			writeLabel(out, ((ImcNAME) expr).label);
+		} else if (expr instanceof ImcCALL) {
+			ImcCALL call = (ImcCALL) expr;
+			out.write(CALL);
+			writeLabel(out, call.label);
+			writeInt(out, call.args.size());
+			for (ImcExpr arg : call.args)
+				writeExpr(out, arg);
+		} else
+			Report.error("Internal error: cannot write " + expr.getClass().getSimpleName() + ".");
+	}
+
+	private void writeLabel(DataOutputStream out, FrmLabel label) throws IOException {
+		Integer index = labels.get(label.name());
+		if (index == null) {
+			index = labelList.size();
+			labels.put(label.name(), index);
+			labelList.add(label);
+		}
+		writeInt(out, index);
+	}
+
+	private void writeTemp(DataOutputStream out, FrmTemp temp) throws IOException {
+		Integer index = temps.get(temp);
+		if (index == null) {
+			index = temps.size();
+			temps.put(temp, index);
+		}
+		writeInt(out, index);
+	}
+
+	private static void writeInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/*--- branje ---*/
+
+	/**
+	 * Prebere fragmente vmesne kode iz datoteke.
+	 *
+	 * @param fileName Ime datoteke.
+	 * @return Fragmenti vmesne kode.
+	 */
+	public static LinkedList<ImcChunk> read(String fileName) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+			LinkedList<ImcChunk> chunks = new ProgramFile().read(in);
+			in.close();
+			return chunks;
+		} catch (EOFException e) {
+			Report.error("Program file '" + fileName + "' is truncated.");
+		} catch (IOException e) {
+			Report.error("Cannot read program file '" + fileName + "'.");
+		}
+		return null;
+	}
+
+	/** Prebrane labele po indeksih. */
+	private FrmLabel[] labelTable;
+
+	/** Prebrane zacasne spremenljivke po indeksih. */
+	private FrmTemp[] tempTable;
+
+	private LinkedList<ImcChunk> read(DataInputStream in) throws IOException {
+		if ((in.readInt() != MAGIC) || (in.readShort() != VERSION))
+			Report.error("Not a program file of this compiler version.");
+
+		labelTable = new FrmLabel[readInt(in)];
+		for (int label = 0; label < labelTable.length; label++) {
+			boolean intrinsic = in.readBoolean();
+			String name = in.readUTF();
+			labelTable[label] = intrinsic ? intrinsicLabel(name) : FrmLabel.restoreLabel(name);
+		}
+		tempTable = new FrmTemp[readInt(in)];
+		for (int temp = 0; temp < tempTable.length; temp++)
+			tempTable[temp] = new FrmTemp();
+
+		LinkedList<ImcChunk> chunks = new LinkedList<ImcChunk>();
+		int numChunks = readInt(in);
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			int kind = in.read();
+			if (kind == DATA_CHUNK) {
+				FrmLabel label = readLabel(in);
+				chunks.add(new ImcDataChunk(label, readInt(in)));
+			} else if (kind == CODE_CHUNK) {
+				FrmFrame frame = readFrame(in);
+				ImcSEQ code = new ImcSEQ();
+				int numStmts = readInt(in);
+				for (int stmt = 0; stmt < numStmts; stmt++)
+					code.stmts.add(readStmt(in));
+				ImcCodeChunk c = new ImcCodeChunk(frame, code);
+				c.lincode = code;
+				chunks.add(c);
+			} else
+				corrupt();
+		}
+		return chunks;
+	}
+
+	private FrmFrame readFrame(DataInputStream in) throws IOException {
+		String name = in.readUTF();
+		int level = readInt(in);
+		FrmFrame frame = new FrmFrame(new AbsFunDef(null, name, new Vector<AbsPar>(), null, null), level);
+		frame.label = readLabel(in);
+		frame.numPars = readInt(in);
+		frame.sizePars = readInt(in);
+		frame.sizeLocs = readInt(in);
+		frame.sizeFPRA = readInt(in);
+		frame.sizeTmps = readInt(in);
+		frame.sizeRegs = readInt(in);
+		frame.sizeArgs = readInt(in);
+		frame.FP = readTemp(in);
+		frame.RV = readTemp(in);
+		return frame;
+	}
+
+	private ImcStmt readStmt(DataInputStream in) throws IOException {
+		switch (in.read()) {
+		case MOVE: {
+			ImcExpr dst = readExpr(in);
+			return new ImcMOVE(dst, readExpr(in));
+		}
+		case EXP:
+			return new ImcEXP(readExpr(in));
+		case JUMP:
+			return new ImcJUMP(readLabel(in));
+		case CJUMP: {
+			ImcExpr cond = readExpr(in);
+			FrmLabel trueLabel = readLabel(in);
+			return new ImcCJUMP(cond, trueLabel, readLabel(in));
+		}
+		case LABEL:
+			return new ImcLABEL(readLabel(in));
+		}
+		corrupt();
+		return null;
+	}
+
+	private ImcExpr readExpr(DataInputStream in) throws IOException {
+		switch (in.read()) {
+		case CONST: {
+			int value = readInt(in);
+			return new ImcCONST((value >>> 1) ^ -(value & 1));
+		}
+		case TEMP:
+			return new ImcTEMP(readTemp(in));
+		case BINOP: {
+			int op = in.read();
+			ImcExpr limc = readExpr(in);
+			return new ImcBINOP(op, limc, readExpr(in));
+		}
+		case MEM:
+			return new ImcMEM(readExpr(in));
+		case NAME:
+			return new ImcNAME(readLabel(in));
+		case CALL: {
+			ImcCALL call = new ImcCALL(readLabel(in));
+			int numArgs = readInt(in);
+			for (int arg = 0; arg < numArgs; arg++)
+				call.args.add(readExpr(in));
+			return call;
+		}
+		}
+		corrupt();
+		return null;
+	}
+
+	/** Vrne vstopno labelo vgrajene funkcije z dano vstopno labelo. */
+	private static FrmLabel intrinsicLabel(String name) {
+		for (Intrinsic intrinsic : Intrinsics.all())
+			if (intrinsic.label.name().equals(name)) return intrinsic.label;
+		Report.error("Program file refers to an unknown predefined function " + name + ".");
+		return null;
+	}
+
+	private FrmLabel readLabel(DataInputStream in) throws IOException {
+		int index = readInt(in);
+		if ((index < 0) || (index >= labelTable.length))
+			corrupt();
+		return labelTable[index];
+	}
+
+	private FrmTemp readTemp(DataInputStream in) throws IOException {
+		int index = readInt(in);
+		if ((index < 0) || (index >= tempTable.length))
+			corrupt();
+		return tempTable[index];
+	}
+
+	private static int readInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		corrupt();
+		return 0;
+	}
+
+	private static void corrupt() {
+		Report.error("Program file is corrupt.");
+	}
+
+}
@@ -0,0 +1,93 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.imcode.*;
+
+/**
+ * Analiza cistih funkcij.
+ * <p>
+ * Funkcija je cista, ce je njen rezultat odvisen le od njenih argumentov: do
+ * pomnilnika dostopa le prek lastnega klicnega zapisa (torej ne pise v
+ * globalne spremenljivke in ne bere klicnih zapisov zunanjih funkcij prek
+ * staticne povezave), ne klice vgrajenih funkcij in klice le ciste funkcije.
+ */
+public class Purity {
+
+	/**
+	 * Vrne ciste funkcije programa.
+	 *
+	 * @param program Program.
+	 * @return Ciste funkcije.
+	 */
+	public static HashSet<LinkedCode> pureFunctions(Program program) {
+		HashSet<LinkedCode> pure = new HashSet<LinkedCode>();
+		for (LinkedCode function : program.functions()) {
+			if (isLocal(function))
+				pure.add(function);
+		}
+
+		// a function calling an impure function is impure as well
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			Iterator<LinkedCode> functions = pure.iterator();
+			while (functions.hasNext()) {
+				if (!callsPure(functions.next(), pure)) {
+					functions.remove();
+					changed = true;
+				}
+			}
+		}
+		return pure;
+	}
+
+	/** Ali funkcija dostopa do pomnilnika le prek lastnega klicnega zapisa. */
+	private static boolean isLocal(LinkedCode function) {
+		for (ImcStmt stmt : function.stmts) {
+			if (!isLocal(stmt, function)) return false;
+		}
+		return true;
+	}
+
+	private static boolean isLocal(ImcCode code, LinkedCode function) {
+		if (code instanceof ImcMOVE)
+			return isLocal(((ImcMOVE) code).dst, function) && isLocal(((ImcMOVE) code).src, function);
+		if (code instanceof ImcEXP)
+			return isLocal(((ImcEXP) code).expr, function);
+		if (code instanceof ImcCJUMP)
+			return isLocal(((ImcCJUMP) code).cond, function);
+		if (code instanceof ImcMEM) {
+			ImcExpr address = ((ImcMEM) code).expr;
+			if ((address instanceof ImcTEMP) && (((ImcTEMP) address).temp == function.frame.FP))
+				return true;
+			return (address instanceof ImcBINOP) && (((ImcBINOP) address).op == ImcBINOP.ADD)
+					&& (((ImcBINOP) address).limc instanceof ImcTEMP)
+					&& (((ImcTEMP) ((ImcBINOP) address).limc).temp == function.frame.FP)
+					&& (((ImcBINOP) address).rimc instanceof ImcCONST);
+		}
+		if (code instanceof ImcBINOP)
+			return isLocal(((ImcBINOP) code).limc, function) && isLocal(((ImcBINOP) code).rimc, function);
+		if (code instanceof ImcCALL) {
+			if (((LinkedCALL) code).callee == null) return false;
+			for (ImcExpr arg : ((ImcCALL) code).args) {
+				if (!isLocal(arg, function)) return false;
+			}
+			return true;
+		}
+		if (code instanceof ImcNAME)
+			return false;
+		return true;
+	}
+
+	/** Ali funkcija klice le ciste funkcije. */
+	private static boolean callsPure(LinkedCode function, HashSet<LinkedCode> pure) {
+		for (ImcStmt stmt : function.stmts) {
+			if ((stmt instanceof ImcMOVE) && (((ImcMOVE) stmt).src instanceof LinkedCALL)) {
+				if (!pure.contains(((LinkedCALL) ((ImcMOVE) stmt).src).callee)) return false;
+			}
+		}
+		return true;
+	}
+
+}
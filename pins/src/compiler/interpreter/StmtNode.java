@@ -0,0 +1,396 @@
+package compiler.interpreter;
+
+/**
+ * Izvrsljivo vozlisce stavka.
+ * <p>
+ * Izvedba stavka vrne indeks naslednjega stavka, ki naj se izvede.
+ */
+abstract class StmtNode {
+
+	/**
+	 * Izvede stavek.
+	 *
+	 * @param frame Klicni zapis.
+	 * @return Indeks naslednjega stavka.
+	 */
+	abstract int execute(NodeFrame frame);
+
+	/** MOVE(TEMP, e) */
+	static final class MoveTemp extends StmtNode {
+
+		private final int reg;
+		private final ExprNode src;
+		private final int next;
+
+		MoveTemp(int reg, ExprNode src, int next) {
+			this.reg = reg;
+			this.src = src;
+			this.next = next;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			frame.regs[reg] = src.execute(frame);
+			return next;
+		}
+
+	}
+
+	/** MOVE(MEM(TEMP(FP) + CONST), e) */
+	static final class StoreFrameSlot extends StmtNode {
+
+		private final int offset;
+		private final ExprNode src;
+		private final int next;
+
+		StoreFrameSlot(int offset, ExprNode src, int next) {
+			this.offset = offset;
+			this.src = src;
+			this.next = next;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			frame.mems.storeWord(frame.fp + offset, src.execute(frame));
+			return next;
+		}
+
+	}
+
+	/** MOVE(MEM(MEM(...MEM(TEMP(FP))...) + CONST), e) */
+	static final class StoreUplevel extends StmtNode {
+
+		private final int depth;
+		private final int offset;
+		private final ExprNode src;
+		private final int next;
+
+		StoreUplevel(int depth, int offset, ExprNode src, int next) {
+			this.depth = depth;
+			this.offset = offset;
+			this.src = src;
+			this.next = next;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			int fp = frame.fp;
+			for (int link = depth; link > 0; link--)
+				fp = frame.mems.loadWord(fp);
+			frame.mems.storeWord(fp + offset, src.execute(frame));
+			return next;
+		}
+
+	}
+
+	/** MOVE(MEM(TEMP(FP) + CONST), MEM(TEMP(FP) + CONST) + CONST) */
+	static final class IncFrameSlot extends StmtNode {
+
+		private final int offset;
+		private final int value;
+		private final int next;
+
+		IncFrameSlot(int offset, int value, int next) {
+			this.offset = offset;
+			this.value = value;
+			this.next = next;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			int address = frame.fp + offset;
+			frame.mems.storeWord(address, frame.mems.loadWord(address) + value);
+			return next;
+		}
+
+	}
+
+	/** MOVE(MEM(e + CONST), e) */
+	static final class StoreOffset extends StmtNode {
+
+		private final ExprNode base;
+		private final int offset;
+		private final ExprNode src;
+		private final int next;
+
+		StoreOffset(ExprNode base, int offset, ExprNode src, int next) {
+			this.base = base;
+			this.offset = offset;
+			this.src = src;
+			this.next = next;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			int address = base.execute(frame) + offset;
+			frame.mems.storeWord(address, src.execute(frame));
+			return next;
+		}
+
+	}
+
+	/** MOVE(MEM(a), e) */
+	static final class Store extends StmtNode {
+
+		private final ExprNode address;
+		private final ExprNode src;
+		private final int next;
+
+		Store(ExprNode address, ExprNode src, int next) {
+			this.address = address;
+			this.src = src;
+			this.next = next;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			int address = this.address.execute(frame);
+			frame.mems.storeWord(address, src.execute(frame));
+			return next;
+		}
+
+	}
+
+	/** EXP */
+	static final class Eval extends StmtNode {
+
+		private final ExprNode expr;
+		private final int next;
+
+		Eval(ExprNode expr, int next) {
+			this.expr = expr;
+			this.next = next;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			expr.execute(frame);
+			return next;
+		}
+
+	}
+
+	/** JUMP */
+	static final class Jump extends StmtNode {
+
+		private final int target;
+
+		Jump(int target) {
+			this.target = target;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return target;
+		}
+
+	}
+
+	/** CJUMP */
+	static final class CJump extends StmtNode {
+
+		private final ExprNode cond;
+		private final int trueTarget;
+		private final int falseTarget;
+
+		CJump(ExprNode cond, int trueTarget, int falseTarget) {
+			this.cond = cond;
+			this.trueTarget = trueTarget;
+			this.falseTarget = falseTarget;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return cond.execute(frame) != 0 ? trueTarget : falseTarget;
+		}
+
+	}
+
+	/** CJUMP(l == r) */
+	static final class EquJump extends StmtNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+		private final int trueTarget;
+		private final int falseTarget;
+
+		EquJump(ExprNode l, ExprNode r, int trueTarget, int falseTarget) {
+			this.l = l;
+			this.r = r;
+			this.trueTarget = trueTarget;
+			this.falseTarget = falseTarget;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) == r.execute(frame) ? trueTarget : falseTarget;
+		}
+
+	}
+
+	/** CJUMP(l != r) */
+	static final class NeqJump extends StmtNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+		private final int trueTarget;
+		private final int falseTarget;
+
+		NeqJump(ExprNode l, ExprNode r, int trueTarget, int falseTarget) {
+			this.l = l;
+			this.r = r;
+			this.trueTarget = trueTarget;
+			this.falseTarget = falseTarget;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) != r.execute(frame) ? trueTarget : falseTarget;
+		}
+
+	}
+
+	/** CJUMP(l < r) */
+	static final class LthJump extends StmtNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+		private final int trueTarget;
+		private final int falseTarget;
+
+		LthJump(ExprNode l, ExprNode r, int trueTarget, int falseTarget) {
+			this.l = l;
+			this.r = r;
+			this.trueTarget = trueTarget;
+			this.falseTarget = falseTarget;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) < r.execute(frame) ? trueTarget : falseTarget;
+		}
+
+	}
+
+	/** CJUMP(l > r) */
+	static final class GthJump extends StmtNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+		private final int trueTarget;
+		private final int falseTarget;
+
+		GthJump(ExprNode l, ExprNode r, int trueTarget, int falseTarget) {
+			this.l = l;
+			this.r = r;
+			this.trueTarget = trueTarget;
+			this.falseTarget = falseTarget;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) > r.execute(frame) ? trueTarget : falseTarget;
+		}
+
+	}
+
+	/** CJUMP(l <= r) */
+	static final class LeqJump extends StmtNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+		private final int trueTarget;
+		private final int falseTarget;
+
+		LeqJump(ExprNode l, ExprNode r, int trueTarget, int falseTarget) {
+			this.l = l;
+			this.r = r;
+			this.trueTarget = trueTarget;
+			this.falseTarget = falseTarget;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) <= r.execute(frame) ? trueTarget : falseTarget;
+		}
+
+	}
+
+	/** CJUMP(l >= r) */
+	static final class GeqJump extends StmtNode {
+
+		private final ExprNode l;
+		private final ExprNode r;
+		private final int trueTarget;
+		private final int falseTarget;
+
+		GeqJump(ExprNode l, ExprNode r, int trueTarget, int falseTarget) {
+			this.l = l;
+			this.r = r;
+			this.trueTarget = trueTarget;
+			this.falseTarget = falseTarget;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			return l.execute(frame) >= r.execute(frame) ? trueTarget : falseTarget;
+		}
+
+	}
+
+	/** MOVE(TEMP, CALL) ali EXP(CALL) */
+	static final class Call extends StmtNode {
+
+		private final int reg;
+		private final NodeFunction callee;
+		private final ExprNode[] args;
+		private final int next;
+
+		Call(int reg, NodeFunction callee, ExprNode[] args, int next) {
+			this.reg = reg;
+			this.callee = callee;
+			this.args = args;
+			this.next = next;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			Memory mems = frame.mems;
+			for (int i = 0; i < args.length; i++)
+				mems.storeWord(frame.sp + 4 * i, args[i].execute(frame));
+			frame.called = callee;
+			frame.resultReg = reg;
+			frame.resume = next;
+
+			// leave the function, which then continues in the callee
+			return Integer.MAX_VALUE;
+		}
+
+	}
+
+	/** MOVE(TEMP, CALL) v repnem polozaju */
+	static final class TailCall extends StmtNode {
+
+		private final NodeFunction callee;
+		private final ExprNode[] args;
+
+		TailCall(NodeFunction callee, ExprNode[] args) {
+			this.callee = callee;
+			this.args = args;
+		}
+
+		@Override
+		int execute(NodeFrame frame) {
+			// the arguments may call this function again, which then has its own frame
+			int[] values = frame.tailArgs(args.length);
+			for (int i = 0; i < args.length; i++)
+				values[i] = args[i].execute(frame);
+			frame.tailCallee = callee;
+
+			// leave the function, which then continues in the callee
+			return Integer.MAX_VALUE;
+		}
+
+	}
+
+}
@@ -0,0 +1,140 @@
+package compiler.interpreter;
+
+import java.util.*;
+
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Iskanje klicev v repnem polozaju.
+ * <p>
+ * Klic MOVE(TEMP t, CALL) je v repnem polozaju, ce se po njem do konca
+ * funkcije izvedejo le skoki in prenosi, ki rezultat klica prenesejo v
+ * register RV, ter ce klicana funkcija ne potrebuje klicnega zapisa klicoce
+ * funkcije. Tak klic lahko namesto klicoce funkcije uporabi njen klicni zapis.
+ */
+class TailCalls {
+
+	/**
+	 * Oznaci klice v repnem polozaju.
+	 *
+	 * @param code Povezana koda funkcije s povezanimi klici.
+	 */
+	static void mark(LinkedCode code) {
+		HashSet<FrmTemp> exposed = exposedTemps(code);
+		for (int pc = 0; pc < code.stmts.length; pc++)
+			code.tailCall[pc] = isTailCall(code, pc, exposed);
+	}
+
+	private static boolean isTailCall(LinkedCode code, int pc, HashSet<FrmTemp> exposed) {
+		if (!(code.stmts[pc] instanceof ImcMOVE)) return false;
+		ImcMOVE move = (ImcMOVE) code.stmts[pc];
+		if (!(move.dst instanceof ImcTEMP) || !(move.src instanceof LinkedCALL)) return false;
+		LinkedCALL call = (LinkedCALL) move.src;
+		LinkedCode callee = call.callee;
+		FrmFrame frame = code.frame;
+		if (callee == null) return false;
+
+		// the arguments of the callee must fit where the arguments of this function are
+		if (callee.frame.sizePars > frame.sizePars) return false;
+
+		// the callee must not reach this frame, neither through its static link
+		// (only top-level functions, at level 0, never follow theirs; a call to
+		// a nested function at the same level passes TEMP(FP)) nor through an
+		// argument
+		if (callee.frame.level > frame.level) return false;
+		int arg = 0;
+		for (ImcExpr expr : call.args) {
+			if (((arg > 0) || (callee.frame.level > 0)) && exposes(expr, frame, exposed))
+				return false;
+			arg++;
+		}
+
+		// follow the result to the end of the function
+		HashSet<FrmTemp> temps = new HashSet<FrmTemp>();
+		HashSet<Integer> slots = new HashSet<Integer>();
+		HashSet<Integer> visited = new HashSet<Integer>();
+		temps.add(((ImcTEMP) move.dst).temp);
+		int next = pc + 1;
+		while (next < code.stmts.length) {
+			if (!visited.add(next)) return false;
+			ImcStmt stmt = code.stmts[next];
+			if (stmt instanceof ImcLABEL) {
+				next++;
+				continue;
+			}
+			if (stmt instanceof ImcJUMP) {
+				next = code.trueTarget[next];
+				continue;
+			}
+			if (!(stmt instanceof ImcMOVE)) return false;
+			ImcExpr dst = ((ImcMOVE) stmt).dst;
+			ImcExpr src = ((ImcMOVE) stmt).src;
+			if (src instanceof ImcCALL) return false;
+			boolean result = ((src instanceof ImcTEMP) && temps.contains(((ImcTEMP) src).temp))
+					|| ((src instanceof ImcMEM) && slots.contains(frameOffset(((ImcMEM) src).expr, frame)));
+			if (dst instanceof ImcTEMP) {
+				if (result) temps.add(((ImcTEMP) dst).temp);
+				else temps.remove(((ImcTEMP) dst).temp);
+			} else {
+				// stores into this frame are dead once the function returns
+				Integer offset = frameOffset(((ImcMEM) dst).expr, frame);
+				if (offset == null) return false;
+				if (result) slots.add(offset);
+				else slots.remove(offset);
+			}
+			next++;
+		}
+		return temps.contains(frame.RV);
+	}
+
+	/** Vrne zacasne spremenljivke, ki lahko vsebujejo naslov v klicnem zapisu funkcije. */
+	private static HashSet<FrmTemp> exposedTemps(LinkedCode code) {
+		HashSet<FrmTemp> exposed = new HashSet<FrmTemp>();
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (ImcStmt stmt : code.stmts) {
+				if (!(stmt instanceof ImcMOVE) || !(((ImcMOVE) stmt).dst instanceof ImcTEMP)) continue;
+				FrmTemp temp = ((ImcTEMP) ((ImcMOVE) stmt).dst).temp;
+				if (!exposed.contains(temp) && exposes(((ImcMOVE) stmt).src, code.frame, exposed)) {
+					exposed.add(temp);
+					changed = true;
+				}
+			}
+		}
+		return exposed;
+	}
+
+	/** Ali je vrednost izraza lahko naslov v klicnem zapisu funkcije. */
+	private static boolean exposes(ImcExpr expr, FrmFrame frame, HashSet<FrmTemp> exposed) {
+		if (expr instanceof ImcTEMP)
+			return (((ImcTEMP) expr).temp == frame.FP) || exposed.contains(((ImcTEMP) expr).temp);
+		if (expr instanceof ImcMEM) {
+			// loads from this frame are values, not addresses
+			if (frameOffset(((ImcMEM) expr).expr, frame) != null) return false;
+			return exposes(((ImcMEM) expr).expr, frame, exposed);
+		}
+		if (expr instanceof ImcBINOP)
+			return exposes(((ImcBINOP) expr).limc, frame, exposed) || exposes(((ImcBINOP) expr).rimc, frame, exposed);
+		if (expr instanceof ImcCALL) {
+			for (ImcExpr arg : ((ImcCALL) expr).args) {
+				if (exposes(arg, frame, exposed)) return true;
+			}
+		}
+		return false;
+	}
+
+	/** Vrne odmik od FP, ce je naslov oblike TEMP(FP) ali TEMP(FP) + CONST, sicer null. */
+	private static Integer frameOffset(ImcExpr address, FrmFrame frame) {
+		if ((address instanceof ImcTEMP) && (((ImcTEMP) address).temp == frame.FP))
+			return 0;
+		if (!(address instanceof ImcBINOP)) return null;
+		ImcBINOP binop = (ImcBINOP) address;
+		if ((binop.op == ImcBINOP.ADD) && (binop.limc instanceof ImcTEMP)
+				&& (((ImcTEMP) binop.limc).temp == frame.FP) && (binop.rimc instanceof ImcCONST))
+			return ((ImcCONST) binop.rimc).value;
+		return null;
+	}
+
+}
@@ -0,0 +1,110 @@
+package compiler.interpreter;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import compiler.imcode.*;
+
+/**
+ * Vecnivojsko izvajanje vmesne kode.
+ * <p>
+ * Funkcije se najprej izvajajo z {@link Interpreter}, ki steje klice in skoke
+ * nazaj. Ko stevec funkcije preseze prag, se funkcija (skupaj s funkcijami, ki
+ * jih lahko klice) v ozadju prevede v zlogovno kodo, ki se uporabi od
+ * naslednjega klica dalje. Oba nivoja uporabljata isti pomnilnik in isto
+ * obliko klicnih zapisov, zato lahko interpretirana funkcija klice prevedeno.
+ * <p>
+ * Noben nivo ne klice funkcij rekurzivno v Javi, zato je globina rekurzije
+ * omejena le s pomnilnikom navideznega stroja, tudi ko se rekurzivna funkcija
+ * prevede med izvajanjem.
+ */
+public class TieredInterpreter extends Interpreter {
+
+	/** Stevilo klicev, po katerem se funkcija prevede. */
+	public static int callThreshold = 1000;
+
+	/** Stevilo skokov nazaj, po katerem se funkcija prevede. */
+	public static int backEdgeThreshold = 10000;
+
+	/** Stanje funkcije. */
+	private static class Tier {
+
+		int calls = 0;
+
+		int backEdges = 0;
+
+		/** Ali je funkcija ze v vrsti za prevajanje. */
+		boolean queued = false;
+
+		/** Prevedena funkcija (null, dokler ni prevedena). */
+		volatile Bytecode bytecode = null;
+
+	}
+
+	/** Stanja funkcij programa. */
+	private final IdentityHashMap<LinkedCode, Tier> tiers = new IdentityHashMap<LinkedCode, Tier>();
+
+	/** Izvajalnik prevedenih funkcij, skupen vsem klicem iz interpreterja. */
+	private final BytecodeInterpreter compiled = new BytecodeInterpreter(machine);
+
+	/** Prevajalnik; uporablja ga le nit za prevajanje. */
+	private final BytecodeCompiler compiler = new BytecodeCompiler();
+
+	/** Nit za prevajanje v ozadju. */
+	private final ExecutorService background = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "pins-compiler");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	public TieredInterpreter(ImcCodeGen imcCodeGen) {
+		this(new Linker().link(imcCodeGen.chunks));
+	}
+
+	private TieredInterpreter(Program program) {
+		super(program, new Machine());
+		for (LinkedCode function : program.functions())
+			tiers.put(function, new Tier());
+
+		run();
+		background.shutdownNow();
+	}
+
+	@Override
+	protected void backEdge(LinkedCode code) {
+		Tier tier = tiers.get(code);
+		if (++tier.backEdges == backEdgeThreshold)
+			queue(code, tier);
+	}
+
+	@Override
+	protected boolean callCompiled(LinkedCode callee) {
+		Tier tier = tiers.get(callee);
+		Bytecode bytecode = tier.bytecode;
+		if (bytecode != null) {
+			compiled.execute(bytecode);
+			return true;
+		}
+		if (++tier.calls == callThreshold)
+			queue(callee, tier);
+		return false;
+	}
+
+	/**
+	 * Doda funkcijo v vrsto za prevajanje.
+	 */
+	private void queue(final LinkedCode function, Tier tier) {
+		if (tier.queued) return;
+		tier.queued = true;
+		background.execute(new Runnable() {
+			@Override
+			public void run() {
+				tiers.get(function).bytecode = compiler.compileReachable(function);
+			}
+		});
+	}
+
+}
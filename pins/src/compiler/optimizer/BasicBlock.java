@@ -0,0 +1,54 @@
+package compiler.optimizer;
+
+import java.util.*;
+
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Osnovni blok linearizirane kode.
+ * <p>
+ * Blok se zacne z labelo (LABEL) in konca s skokom (JUMP ali CJUMP); vmes ni
+ * ne label ne skokov.
+ */
+public class BasicBlock {
+
+	/** Labela bloka. */
+	public final FrmLabel label;
+
+	/** Stavki bloka, vkljucno z zacetno labelo in koncnim skokom. */
+	public final LinkedList<ImcStmt> stmts = new LinkedList<ImcStmt>();
+
+	/**
+	 * Ustvari prazen blok.
+	 *
+	 * @param label Labela bloka.
+	 */
+	public BasicBlock(FrmLabel label) {
+		this.label = label;
+		stmts.add(new ImcLABEL(label));
+	}
+
+	/**
+	 * Vrne skok na koncu bloka.
+	 *
+	 * @return Skok (JUMP ali CJUMP).
+	 */
+	public ImcStmt jump() {
+		return stmts.getLast();
+	}
+
+	/**
+	 * Vrne labele naslednikov bloka; pri pogojnem skoku je najprej cilj
+	 * izpolnjenega pogoja.
+	 *
+	 * @return Labele naslednikov.
+	 */
+	public FrmLabel[] successors() {
+		ImcStmt jump = jump();
+		if (jump instanceof ImcCJUMP)
+			return new FrmLabel[] { ((ImcCJUMP) jump).trueLabel, ((ImcCJUMP) jump).falseLabel };
+		return new FrmLabel[] { ((ImcJUMP) jump).label };
+	}
+
+}
@@ -0,0 +1,244 @@
+package compiler.optimizer;
+
+import java.util.*;
+
+import compiler.imcode.*;
+
+/**
+ * Zlaganje konstant in algebrske poenostavitve vmesne kode.
+ * <p>
+ * Izracuna podizraze s konstantnimi operandi, odstrani nevtralne operande
+ * (x + 0, x - 0, x * 1, x / 1), nadomesti x * 0 z 0, ce x nima stranskih
+ * ucinkov, obrne primerjave pod negacijo in pogojne skoke s konstantnim
+ * pogojem nadomesti z brezpogojnimi. Poenostavitve ohranjajo pomen kode tudi
+ * ob prekoracitvah obsega celih stevil.
+ */
+public class ConstFolder {
+
+	/** Stevilo poenostavljenih izrazov in stavkov. */
+	public int folded = 0;
+
+	/**
+	 * Poenostavi stavek.
+	 *
+	 * @param stmt Stavek.
+	 * @return Poenostavljen stavek.
+	 */
+	public ImcStmt fold(ImcStmt stmt) {
+		if (stmt instanceof ImcSEQ) {
+			ImcSEQ seq = (ImcSEQ) stmt;
+			ListIterator<ImcStmt> stmts = seq.stmts.listIterator();
+			while (stmts.hasNext())
+				stmts.set(fold(stmts.next()));
+			return seq;
+		}
+		if (stmt instanceof ImcMOVE) {
+			ImcMOVE move = (ImcMOVE) stmt;
+			move.dst = fold(move.dst);
+			move.src = fold(move.src);
+			return move;
+		}
+		if (stmt instanceof ImcEXP) {
+			ImcEXP exp = (ImcEXP) stmt;
+			exp.expr = fold(exp.expr);
+			return exp;
+		}
+		if (stmt instanceof ImcCJUMP) {
+			ImcCJUMP cjump = (ImcCJUMP) stmt;
+			ImcExpr cond = fold(cjump.cond);
+			if (cond instanceof ImcCONST) {
+				folded++;
+				return new ImcJUMP(value(cond) != 0 ? cjump.trueLabel : cjump.falseLabel);
+			}
+			// CJUMP(0 == e, t, f) = CJUMP(e, f, t)
+			if (isConst(cond, 0, ImcBINOP.EQU)) {
+				folded++;
+				return new ImcCJUMP(((ImcBINOP) cond).rimc, cjump.falseLabel, cjump.trueLabel);
+			}
+			cjump.cond = cond;
+			return cjump;
+		}
+		return stmt;
+	}
+
+	/**
+	 * Poenostavi izraz.
+	 *
+	 * @param expr Izraz.
+	 * @return Poenostavljen izraz.
+	 */
+	public ImcExpr fold(ImcExpr expr) {
+		if (expr instanceof ImcBINOP) {
+			ImcBINOP binop = (ImcBINOP) expr;
+			binop.limc = fold(binop.limc);
+			binop.rimc = fold(binop.rimc);
+			ImcExpr simplified = simplify(binop);
+			if (simplified != binop) folded++;
+			return simplified;
+		}
+		if (expr instanceof ImcMEM) {
+			ImcMEM mem = (ImcMEM) expr;
+			mem.expr = fold(mem.expr);
+			return mem;
+		}
+		if (expr instanceof ImcCALL) {
+			ImcCALL call = (ImcCALL) expr;
+			ListIterator<ImcExpr> args = call.args.listIterator();
+			while (args.hasNext())
+				args.set(fold(args.next()));
+			return call;
+		}
+		if (expr instanceof ImcESEQ) {
+			ImcESEQ eseq = (ImcESEQ) expr;
+			eseq.stmt = fold(eseq.stmt);
+			eseq.expr = fold(eseq.expr);
+			if ((eseq.stmt instanceof ImcSEQ) && ((ImcSEQ) eseq.stmt).stmts.isEmpty()) {
+				folded++;
+				return eseq.expr;
+			}
+			return eseq;
+		}
+		return expr;
+	}
+
+	/** Poenostavi binarno operacijo, katere operanda sta ze poenostavljena. */
+	private ImcExpr simplify(ImcBINOP binop) {
+		ImcExpr l = binop.limc;
+		ImcExpr r = binop.rimc;
+
+		if ((l instanceof ImcCONST) && (r instanceof ImcCONST)) {
+			Integer value = evaluate(binop.op, value(l), value(r));
+			if (value != null) return new ImcCONST(value);
+			return binop;
+		}
+
+		switch (binop.op) {
+		case ImcBINOP.ADD:
+			if (isConst(l, 0)) return r;
+			if (isConst(r, 0)) return l;
+			// x + (0 - y) = x - y
+			if (isConst(r, 0, ImcBINOP.SUB))
+				return new ImcBINOP(ImcBINOP.SUB, l, ((ImcBINOP) r).rimc);
+			break;
+		case ImcBINOP.SUB:
+			if (isConst(r, 0)) return l;
+			// 0 - (0 - e) = e
+			if (isConst(l, 0) && isConst(r, 0, ImcBINOP.SUB)) return ((ImcBINOP) r).rimc;
+			// x - (0 - y) = x + y
+			if (isConst(r, 0, ImcBINOP.SUB))
+				return new ImcBINOP(ImcBINOP.ADD, l, ((ImcBINOP) r).rimc);
+			// 0 - k = -k
+			if (isConst(l, 0) && (r instanceof ImcCONST)) return new ImcCONST(-value(r));
+			break;
+		case ImcBINOP.MUL:
+			if (isConst(l, 1)) return r;
+			if (isConst(r, 1)) return l;
+			if (isConst(l, 0) && isPure(r)) return l;
+			if (isConst(r, 0) && isPure(l)) return r;
+			break;
+		case ImcBINOP.DIV:
+			if (isConst(r, 1)) return l;
+			break;
+		case ImcBINOP.EQU:
+			// 0 == (a < b) = a >= b, ...
+			if (isConst(l, 0) && (r instanceof ImcBINOP) && (negate(((ImcBINOP) r).op) >= 0)) {
+				ImcBINOP cmp = (ImcBINOP) r;
+				return new ImcBINOP(negate(cmp.op), cmp.limc, cmp.rimc);
+			}
+			break;
+		case ImcBINOP.AND:
+			if ((isConst(l, 0) && isPure(r)) || (isConst(r, 0) && isPure(l))) return new ImcCONST(0);
+			if (isNonZeroConst(l) && isBoolean(r)) return r;
+			if (isNonZeroConst(r) && isBoolean(l)) return l;
+			break;
+		case ImcBINOP.OR:
+			if ((isNonZeroConst(l) && isPure(r)) || (isNonZeroConst(r) && isPure(l))) return new ImcCONST(1);
+			if (isConst(l, 0) && isBoolean(r)) return r;
+			if (isConst(r, 0) && isBoolean(l)) return l;
+			break;
+		}
+		return binop;
+	}
+
+	/**
+	 * Izracuna binarno operacijo nad konstantama tako, kot jo izracunajo
+	 * izvajalniki.
+	 *
+	 * @return Vrednost ali null, ce bi se izvajanje ustavilo (deljenje z 0).
+	 */
+	private static Integer evaluate(int op, int l, int r) {
+		switch (op) {
+		case ImcBINOP.ADD: return l + r;
+		case ImcBINOP.SUB: return l - r;
+		case ImcBINOP.MUL: return l * r;
+		case ImcBINOP.DIV: return r == 0 ? null : l / r;
+		case ImcBINOP.MOD: return r == 0 ? null : l % r;
+		case ImcBINOP.EQU: return l == r ? 1 : 0;
+		case ImcBINOP.NEQ: return l != r ? 1 : 0;
+		case ImcBINOP.LTH: return l < r ? 1 : 0;
+		case ImcBINOP.GTH: return l > r ? 1 : 0;
+		case ImcBINOP.LEQ: return l <= r ? 1 : 0;
+		case ImcBINOP.GEQ: return l >= r ? 1 : 0;
+		case ImcBINOP.AND: return (l != 0) && (r != 0) ? 1 : 0;
+		case ImcBINOP.OR: return (l != 0) || (r != 0) ? 1 : 0;
+		}
+		return null;
+	}
+
+	/** Vrne nasprotno primerjavo oziroma -1, ce operator ni primerjava. */
+	static int negate(int op) {
+		switch (op) {
+		case ImcBINOP.EQU: return ImcBINOP.NEQ;
+		case ImcBINOP.NEQ: return ImcBINOP.EQU;
+		case ImcBINOP.LTH: return ImcBINOP.GEQ;
+		case ImcBINOP.GTH: return ImcBINOP.LEQ;
+		case ImcBINOP.LEQ: return ImcBINOP.GTH;
+		case ImcBINOP.GEQ: return ImcBINOP.LTH;
+		}
+		return -1;
+	}
+
+	private static int value(ImcExpr expr) {
+		return ((ImcCONST) expr).value.intValue();
+	}
+
+	private static boolean isConst(ImcExpr expr, int value) {
+		return (expr instanceof ImcCONST) && (value(expr) == value);
+	}
+
+	private static boolean isNonZeroConst(ImcExpr expr) {
+		return (expr instanceof ImcCONST) && (value(expr) != 0);
+	}
+
+	/** Ali je izraz binarna operacija op s konstanto value kot levim operandom. */
+	private static boolean isConst(ImcExpr expr, int value, int op) {
+		return (expr instanceof ImcBINOP) && (((ImcBINOP) expr).op == op) && isConst(((ImcBINOP) expr).limc, value);
+	}
+
+	/** Ali je vrednost izraza zagotovo 0 ali 1. */
+	private static boolean isBoolean(ImcExpr expr) {
+		if (expr instanceof ImcCONST) return (value(expr) == 0) || (value(expr) == 1);
+		if (expr instanceof ImcBINOP) {
+			int op = ((ImcBINOP) expr).op;
+			return (op == ImcBINOP.AND) || (op == ImcBINOP.OR) || (negate(op) >= 0);
+		}
+		return false;
+	}
+
+	/**
+	 * Ali izracun izraza nima stranskih ucinkov in se vedno konca, tako da ga
+	 * je mogoce izpustiti.
+	 */
+	static boolean isPure(ImcExpr expr) {
+		if ((expr instanceof ImcCONST) || (expr instanceof ImcTEMP) || (expr instanceof ImcNAME)) return true;
+		if (expr instanceof ImcMEM) return isPure(((ImcMEM) expr).expr);
+		if (expr instanceof ImcBINOP) {
+			ImcBINOP binop = (ImcBINOP) expr;
+			if (((binop.op == ImcBINOP.DIV) || (binop.op == ImcBINOP.MOD)) && !isNonZeroConst(binop.rimc))
+				return false;
+			return isPure(binop.limc) && isPure(binop.rimc);
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,103 @@
+package compiler.optimizer;
+
+import java.util.*;
+
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Graf poteka linearizirane kode funkcije.
+ * <p>
+ * Koda se razdeli na osnovne bloke: bloku brez zacetne labele se doda nova
+ * labela, bloku brez koncnega skoka pa skok na naslednji blok. Zadnji blok
+ * skoci na izhodno labelo {@link #exit}, ki oznacuje konec kode funkcije.
+ */
+public class ControlFlowGraph {
+
+	/** Klicni zapis funkcije. */
+	public final FrmFrame frame;
+
+	/** Bloki; prvi blok je vstopni. */
+	public final ArrayList<BasicBlock> blocks = new ArrayList<BasicBlock>();
+
+	/** Labela konca kode funkcije. */
+	public final FrmLabel exit = FrmLabel.newLabel();
+
+	/** Bloki po imenih label. */
+	private final HashMap<String, BasicBlock> labels = new HashMap<String, BasicBlock>();
+
+	/**
+	 * Zgradi graf poteka.
+	 *
+	 * @param frame Klicni zapis funkcije.
+	 * @param code Linearizirana koda funkcije.
+	 */
+	public ControlFlowGraph(FrmFrame frame, ImcSEQ code) {
+		this.frame = frame;
+		BasicBlock block = null;
+		for (ImcStmt stmt : code.stmts) {
+			if (stmt instanceof ImcLABEL) {
+				FrmLabel label = ((ImcLABEL) stmt).label;
+				if (block != null)
+					block.stmts.add(new ImcJUMP(label));
+				block = add(new BasicBlock(label));
+				continue;
+			}
+			if (block == null)
+				block = add(new BasicBlock(FrmLabel.newLabel()));
+			block.stmts.add(stmt);
+			if ((stmt instanceof ImcJUMP) || (stmt instanceof ImcCJUMP))
+				block = null;
+		}
+		if (block != null)
+			block.stmts.add(new ImcJUMP(exit));
+		if (blocks.isEmpty())
+			add(new BasicBlock(FrmLabel.newLabel())).stmts.add(new ImcJUMP(exit));
+	}
+
+	private BasicBlock add(BasicBlock block) {
+		blocks.add(block);
+		labels.put(block.label.name(), block);
+		return block;
+	}
+
+	/**
+	 * Vrne blok z dano labelo.
+	 *
+	 * @param label Labela.
+	 * @return Blok oziroma null za izhodno labelo.
+	 */
+	public BasicBlock block(FrmLabel label) {
+		return labels.get(label.name());
+	}
+
+	/**
+	 * Doda nov vstopni blok.
+	 *
+	 * @param block Blok.
+	 */
+	public void addEntry(BasicBlock block) {
+		blocks.add(0, block);
+		labels.put(block.label.name(), block);
+	}
+
+	/**
+	 * Odstrani blok iz grafa.
+	 *
+	 * @param block Blok.
+	 */
+	public void remove(BasicBlock block) {
+		blocks.remove(block);
+		labels.remove(block.label.name());
+	}
+
+	/**
+	 * Vrne vstopni blok.
+	 *
+	 * @return Vstopni blok.
+	 */
+	public BasicBlock entry() {
+		return blocks.get(0);
+	}
+
+}
@@ -0,0 +1,163 @@
+package compiler.optimizer;
+
+import java.util.*;
+
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Odstranjevanje mrtve kode iz grafa poteka.
+ * <p>
+ * Odstranijo se bloki, ki niso dosegljivi iz vstopnega bloka, stavki EXP brez
+ * stranskih ucinkov in prirejanja zacasnim spremenljivkam, katerih vrednost
+ * se ne uporabi vec (glede na analizo zivosti). Na koncu funkcije je ziva le
+ * zacasna spremenljivka z rezultatom (RV). Klici se ne odstranijo nikoli.
+ */
+public class DeadCodeEliminator {
+
+	/** Stevilo odstranjenih nedosegljivih blokov. */
+	public int removedBlocks = 0;
+
+	/** Stevilo stavkov v odstranjenih nedosegljivih blokih. */
+	public int removedUnreachable = 0;
+
+	/** Stevilo odstranjenih mrtvih stavkov. */
+	public int removedDead = 0;
+
+	/**
+	 * Odstrani mrtvo kodo iz grafa poteka.
+	 *
+	 * @param cfg Graf poteka.
+	 */
+	public void eliminate(ControlFlowGraph cfg) {
+		removeUnreachable(cfg);
+		while (removeDead(cfg)) {
+		}
+	}
+
+	private void removeUnreachable(ControlFlowGraph cfg) {
+		HashSet<BasicBlock> reachable = new HashSet<BasicBlock>();
+		Stack<BasicBlock> pending = new Stack<BasicBlock>();
+		pending.push(cfg.entry());
+		while (!pending.isEmpty()) {
+			BasicBlock block = pending.pop();
+			if (!reachable.add(block)) continue;
+			for (FrmLabel label : block.successors()) {
+				BasicBlock succ = cfg.block(label);
+				if (succ != null) pending.push(succ);
+			}
+		}
+
+		for (BasicBlock block : new ArrayList<BasicBlock>(cfg.blocks)) {
+			if (!reachable.contains(block)) {
+				cfg.remove(block);
+				removedBlocks++;
+				removedUnreachable += block.stmts.size();
+			}
+		}
+	}
+
+	/**
+	 * Odstrani mrtve stavke glede na zivost zacasnih spremenljivk.
+	 *
+	 * @return Ali je bil odstranjen kaksen stavek.
+	 */
+	private boolean removeDead(ControlFlowGraph cfg) {
+		HashMap<BasicBlock, HashSet<FrmTemp>> liveIn = liveness(cfg);
+		boolean removed = false;
+		for (BasicBlock block : cfg.blocks) {
+			HashSet<FrmTemp> live = liveOut(cfg, block, liveIn);
+			Iterator<ImcStmt> stmts = block.stmts.descendingIterator();
+			while (stmts.hasNext()) {
+				ImcStmt stmt = stmts.next();
+				if (isDead(stmt, live)) {
+					stmts.remove();
+					removedDead++;
+					removed = true;
+					continue;
+				}
+				transfer(stmt, live);
+			}
+		}
+		return removed;
+	}
+
+	/** Ali stavek nima ucinka, ce so zive le dane zacasne spremenljivke. */
+	private static boolean isDead(ImcStmt stmt, HashSet<FrmTemp> live) {
+		if (stmt instanceof ImcEXP)
+			return ConstFolder.isPure(((ImcEXP) stmt).expr);
+		if ((stmt instanceof ImcMOVE) && (((ImcMOVE) stmt).dst instanceof ImcTEMP)) {
+			ImcMOVE move = (ImcMOVE) stmt;
+			return !live.contains(((ImcTEMP) move.dst).temp) && ConstFolder.isPure(move.src);
+		}
+		return false;
+	}
+
+	/** Izracuna zive zacasne spremenljivke na zacetku vsakega bloka. */
+	private HashMap<BasicBlock, HashSet<FrmTemp>> liveness(ControlFlowGraph cfg) {
+		HashMap<BasicBlock, HashSet<FrmTemp>> liveIn = new HashMap<BasicBlock, HashSet<FrmTemp>>();
+		for (BasicBlock block : cfg.blocks)
+			liveIn.put(block, new HashSet<FrmTemp>());
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int b = cfg.blocks.size() - 1; b >= 0; b--) {
+				BasicBlock block = cfg.blocks.get(b);
+				HashSet<FrmTemp> live = liveOut(cfg, block, liveIn);
+				Iterator<ImcStmt> stmts = block.stmts.descendingIterator();
+				while (stmts.hasNext())
+					transfer(stmts.next(), live);
+				if (liveIn.get(block).addAll(live))
+					changed = true;
+			}
+		}
+		return liveIn;
+	}
+
+	/** Vrne zive zacasne spremenljivke na koncu bloka. */
+	private HashSet<FrmTemp> liveOut(ControlFlowGraph cfg, BasicBlock block,
+			HashMap<BasicBlock, HashSet<FrmTemp>> liveIn) {
+		HashSet<FrmTemp> live = new HashSet<FrmTemp>();
+		for (FrmLabel label : block.successors()) {
+			BasicBlock succ = cfg.block(label);
+			if (succ != null)
+				live.addAll(liveIn.get(succ));
+			else
+				live.add(cfg.frame.RV);
+		}
+		return live;
+	}
+
+	/** Zive spremenljivke za stavkom spremeni v zive spremenljivke pred njim. */
+	private static void transfer(ImcStmt stmt, HashSet<FrmTemp> live) {
+		if (stmt instanceof ImcMOVE) {
+			ImcMOVE move = (ImcMOVE) stmt;
+			if (move.dst instanceof ImcTEMP)
+				live.remove(((ImcTEMP) move.dst).temp);
+			else
+				uses(move.dst, live);
+			uses(move.src, live);
+		} else if (stmt instanceof ImcEXP) {
+			uses(((ImcEXP) stmt).expr, live);
+		} else if (stmt instanceof ImcCJUMP) {
+			uses(((ImcCJUMP) stmt).cond, live);
+		}
+	}
+
+	/** Doda zacasne spremenljivke, ki jih bere izraz. */
+	private static void uses(ImcExpr expr, HashSet<FrmTemp> live) {
+		if (expr instanceof ImcTEMP)
+			live.add(((ImcTEMP) expr).temp);
+		else if (expr instanceof ImcMEM)
+			uses(((ImcMEM) expr).expr, live);
+		else if (expr instanceof ImcBINOP) {
+			uses(((ImcBINOP) expr).limc, live);
+			uses(((ImcBINOP) expr).rimc, live);
+		} else if (expr instanceof ImcCALL) {
+			for (ImcExpr arg : ((ImcCALL) expr).args)
+				uses(arg, live);
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package compiler.optimizer;
+
+import java.util.*;
+
+import compiler.*;
+import compiler.imcode.*;
+
+/**
+ * Optimizacija vmesne kode.
+ * <p>
+ * Vmesna koda fragmentov kode se poenostavi, linearizira in razdeli na
+ * osnovne bloke; iz grafa poteka se odstrani mrtva koda, izracun staticnih
+ * povezav se prenese na vstop v funkcijo, bloki pa se razvrstijo v sledi.
+ * Optimizacije je treba pognati pred povezovanjem oziroma zapisom programa.
+ */
+public class Optimizer {
+
+	/** Zlaganje konstant. */
+	private final ConstFolder folder = new ConstFolder();
+
+	/** Odstranjevanje mrtve kode. */
+	private final DeadCodeEliminator eliminator = new DeadCodeEliminator();
+
+	/** Izracun staticnih povezav ob vstopu v funkcijo. */
+	private final StaticLinkHoister hoister = new StaticLinkHoister();
+
+	/** Razvrscanje osnovnih blokov. */
+	private final TraceScheduler scheduler = new TraceScheduler();
+
+	/** Stevilo stavkov linearizirane kode pred optimizacijami grafa poteka. */
+	private int stmtsBefore = 0;
+
+	/** Stevilo stavkov optimizirane linearizirane kode. */
+	private int stmtsAfter = 0;
+
+	/**
+	 * Optimizira vmesno kodo vseh fragmentov kode.
+	 *
+	 * @param chunks Fragmenti vmesne kode.
+	 */
+	public void optimize(LinkedList<ImcChunk> chunks) {
+		for (ImcChunk chunk : chunks) {
+			if (chunk instanceof ImcCodeChunk) {
+				ImcCodeChunk c = (ImcCodeChunk) chunk;
+				c.imcode = folder.fold(c.imcode);
+				c.lincode = new ImcCanonicalizer(c.frame).linear(c.imcode);
+				stmtsBefore += ((ImcSEQ) c.lincode).stmts.size();
+				ControlFlowGraph cfg = new ControlFlowGraph(c.frame, (ImcSEQ) c.lincode);
+				scheduler.thread(cfg);
+				eliminator.eliminate(cfg);
+				hoister.hoist(cfg);
+				c.lincode = scheduler.schedule(cfg);
+				stmtsAfter += ((ImcSEQ) c.lincode).stmts.size();
+			}
+		}
+	}
+
+	/**
+	 * Izpise statistiko optimizacij na datoteko z vmesnimi rezultati.
+	 */
+	public void dumpStatistics() {
+		Report.dump(0, "OPTIMIZER STATISTICS:");
+		Report.dump(2, String.format("%-32s %8d", "folded expressions", folder.folded));
+		Report.dump(2, String.format("%-32s %8d", "linear statements", stmtsBefore));
+		Report.dump(2, String.format("%-32s %8d", "removed unreachable blocks", eliminator.removedBlocks));
+		Report.dump(2, String.format("%-32s %8d", "removed unreachable statements", eliminator.removedUnreachable));
+		Report.dump(2, String.format("%-32s %8d", "removed dead statements", eliminator.removedDead));
+		Report.dump(2, String.format("%-32s %8d", "hoisted static links", hoister.hoisted));
+		Report.dump(2, String.format("%-32s %8d", "removed jumps", scheduler.removedJumps));
+		Report.dump(2, String.format("%-32s %8d", "removed labels", scheduler.removedLabels));
+		Report.dump(2, String.format("%-32s %8d", "optimized statements", stmtsAfter));
+	}
+
+}
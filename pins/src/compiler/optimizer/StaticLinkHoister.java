@@ -0,0 +1,172 @@
+package compiler.optimizer;
+
+import java.util.*;
+
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Izracun staticnih povezav ob vstopu v funkcijo.
+ * <p>
+ * Dostopi do spremenljivk staticno nadrejenih funkcij in klici funkcij na
+ * visjih nivojih vsakic znova sledijo verigi staticnih povezav
+ * MEM(...MEM(TEMP(FP))...). Staticne povezave se med izvajanjem funkcije ne
+ * spreminjajo, zato se kazalci na klicne zapise nadrejenih funkcij izracunajo
+ * enkrat, v novem vstopnem bloku, in hranijo v zacasnih spremenljivkah:
+ * dostop do nelokalne spremenljivke postane en sam indeksiran dostop
+ * MEM(TEMP + CONST). Veriga se prenese iz zank, kjer je ze ena uporaba
+ * odtehta dodaten stavek ob vstopu, iz preostale kode pa le, ce se uporabi vec
+ * kot enkrat.
+ */
+public class StaticLinkHoister {
+
+	/** Stevilo nadomescenih verig staticnih povezav. */
+	public int hoisted = 0;
+
+	/** Graf poteka funkcije. */
+	private ControlFlowGraph cfg;
+
+	/** Zacasne spremenljivke s kazalci na klicne zapise nadrejenih funkcij po globini. */
+	private ArrayList<FrmTemp> links;
+
+	/**
+	 * Prenese izracun staticnih povezav v nov vstopni blok.
+	 *
+	 * @param cfg Graf poteka funkcije.
+	 */
+	public void hoist(ControlFlowGraph cfg) {
+		this.cfg = cfg;
+
+		// how often, and how deep, the blocks follow static links
+		int[] chains = new int[2];
+		BasicBlock user = null;
+		for (BasicBlock block : cfg.blocks) {
+			for (ImcStmt stmt : block.stmts) {
+				int uses = chains[0];
+				chains(stmt, chains);
+				if (chains[0] > uses) user = block;
+			}
+		}
+		if ((chains[0] == 0) || ((chains[0] == 1) && !isInLoop(user))) return;
+		int depth = chains[1];
+
+		links = new ArrayList<FrmTemp>();
+		links.add(cfg.frame.FP);
+		BasicBlock entry = new BasicBlock(FrmLabel.newLabel());
+		for (int link = 1; link <= depth; link++) {
+			FrmTemp temp = new FrmTemp();
+			entry.stmts.add(new ImcMOVE(new ImcTEMP(temp), new ImcMEM(new ImcTEMP(links.get(link - 1)))));
+			links.add(temp);
+		}
+		entry.stmts.add(new ImcJUMP(cfg.entry().label));
+
+		for (BasicBlock block : cfg.blocks) {
+			ListIterator<ImcStmt> stmts = block.stmts.listIterator();
+			while (stmts.hasNext())
+				stmts.set(rewrite(stmts.next()));
+		}
+		cfg.addEntry(entry);
+	}
+
+	/**
+	 * Presteje verige staticnih povezav v kodi.
+	 *
+	 * @param chains Stevilo verig in najvecja globina.
+	 */
+	private int[] chains(ImcCode code, int[] chains) {
+		int depth = depth(code);
+		if (depth > 0) {
+			chains[0]++;
+			chains[1] = Math.max(chains[1], depth);
+			return chains;
+		}
+		if (code instanceof ImcMOVE) {
+			chains(address(((ImcMOVE) code).dst), chains);
+			chains(((ImcMOVE) code).src, chains);
+		} else if (code instanceof ImcEXP)
+			chains(((ImcEXP) code).expr, chains);
+		else if (code instanceof ImcCJUMP)
+			chains(((ImcCJUMP) code).cond, chains);
+		else if (code instanceof ImcMEM)
+			chains(((ImcMEM) code).expr, chains);
+		else if (code instanceof ImcBINOP) {
+			chains(((ImcBINOP) code).limc, chains);
+			chains(((ImcBINOP) code).rimc, chains);
+		} else if (code instanceof ImcCALL) {
+			for (ImcExpr arg : ((ImcCALL) code).args)
+				chains(arg, chains);
+		}
+		return chains;
+	}
+
+	/** Vrne naslov, na katerega se pise, oziroma null za zacasno spremenljivko. */
+	private static ImcExpr address(ImcExpr dst) {
+		return (dst instanceof ImcMEM) ? ((ImcMEM) dst).expr : null;
+	}
+
+	/** Vrne dolzino verige staticnih povezav oziroma 0, ce koda ni veriga. */
+	private int depth(ImcCode code) {
+		int depth = 0;
+		while (code instanceof ImcMEM) {
+			code = ((ImcMEM) code).expr;
+			depth++;
+		}
+		return ((code instanceof ImcTEMP) && (((ImcTEMP) code).temp == cfg.frame.FP)) ? depth : 0;
+	}
+
+	private ImcStmt rewrite(ImcStmt stmt) {
+		if (stmt instanceof ImcMOVE) {
+			ImcMOVE move = (ImcMOVE) stmt;
+			// the destination is a location, only its address may be replaced
+			ImcExpr dst = (move.dst instanceof ImcMEM) ? new ImcMEM(rewrite(((ImcMEM) move.dst).expr)) : move.dst;
+			return new ImcMOVE(dst, rewrite(move.src));
+		}
+		if (stmt instanceof ImcEXP)
+			return new ImcEXP(rewrite(((ImcEXP) stmt).expr));
+		if (stmt instanceof ImcCJUMP) {
+			ImcCJUMP cjump = (ImcCJUMP) stmt;
+			return new ImcCJUMP(rewrite(cjump.cond), cjump.trueLabel, cjump.falseLabel);
+		}
+		return stmt;
+	}
+
+	private ImcExpr rewrite(ImcExpr expr) {
+		int depth = depth(expr);
+		if (depth > 0) {
+			hoisted++;
+			return new ImcTEMP(links.get(depth));
+		}
+		if (expr instanceof ImcMEM)
+			return new ImcMEM(rewrite(((ImcMEM) expr).expr));
+		if (expr instanceof ImcBINOP) {
+			ImcBINOP binop = (ImcBINOP) expr;
+			return new ImcBINOP(binop.op, rewrite(binop.limc), rewrite(binop.rimc));
+		}
+		if (expr instanceof ImcCALL) {
+			ImcCALL call = (ImcCALL) expr;
+			ImcCALL copy = new ImcCALL(call.label);
+			for (ImcExpr arg : call.args)
+				copy.args.add(rewrite(arg));
+			return copy;
+		}
+		return expr;
+	}
+
+	/** Ali je blok v kaksni zanki. */
+	private boolean isInLoop(BasicBlock block) {
+		HashSet<BasicBlock> visited = new HashSet<BasicBlock>();
+		Stack<BasicBlock> pending = new Stack<BasicBlock>();
+		pending.push(block);
+		while (!pending.isEmpty()) {
+			for (FrmLabel label : pending.pop().successors()) {
+				BasicBlock succ = cfg.block(label);
+				if (succ == block)
+					return true;
+				if ((succ != null) && visited.add(succ))
+					pending.push(succ);
+			}
+		}
+		return false;
+	}
+
+}
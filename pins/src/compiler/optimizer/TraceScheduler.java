@@ -0,0 +1,180 @@
+package compiler.optimizer;
+
+import java.util.*;
+
+import compiler.frames.*;
+import compiler.imcode.*;
+
+/**
+ * Razvrscanje osnovnih blokov v sledi.
+ * <p>
+ * Skoki na bloke, ki vsebujejo le skok, se preusmerijo na njihov cilj, skoki
+ * na pogoj zanke pa se nadomestijo s pogojem samim. Bloki se nato uredijo v
+ * sledi tako, da za pogojnim skokom, kadar je le mogoce, sledi blok
+ * neizpolnjenega pogoja, za brezpogojnim skokom pa njegov cilj. Skoki na
+ * naslednji blok in labele, na katere ne skoci noben skok, se odstranijo.
+ */
+public class TraceScheduler {
+
+	/** Stevilo odstranjenih skokov. */
+	public int removedJumps = 0;
+
+	/** Stevilo odstranjenih label. */
+	public int removedLabels = 0;
+
+	/**
+	 * Razvrsti bloke grafa poteka in vrne njihovo linearizirano kodo.
+	 *
+	 * @param cfg Graf poteka.
+	 * @return Linearizirana koda.
+	 */
+	public ImcSEQ schedule(ControlFlowGraph cfg) {
+		thread(cfg);
+
+		// traces
+		ArrayList<BasicBlock> order = new ArrayList<BasicBlock>();
+		HashSet<BasicBlock> scheduled = new HashSet<BasicBlock>();
+		for (BasicBlock start : cfg.blocks) {
+			BasicBlock block = start;
+			while ((block != null) && scheduled.add(block)) {
+				order.add(block);
+				block = next(cfg, block, scheduled);
+			}
+		}
+		cfg.blocks.clear();
+		cfg.blocks.addAll(order);
+
+		return layout(cfg);
+	}
+
+	/**
+	 * Preusmeri skoke mimo blokov, ki vsebujejo le skok. Bloki, ki jih
+	 * preusmeritev naredi nedosegljive, ostanejo v grafu.
+	 *
+	 * @param cfg Graf poteka.
+	 */
+	public void thread(ControlFlowGraph cfg) {
+		for (BasicBlock block : cfg.blocks)
+			thread(cfg, block);
+	}
+
+	/**
+	 * Preusmeri skok na koncu bloka mimo blokov, ki vsebujejo le skok.
+	 * Brezpogojni skok na blok, ki vsebuje le pogojni skok (npr. na pogoj
+	 * zanke), se nadomesti s kopijo pogojnega skoka.
+	 */
+	private void thread(ControlFlowGraph cfg, BasicBlock block) {
+		ImcStmt jump = block.jump();
+		if (jump instanceof ImcJUMP) {
+			FrmLabel label = follow(cfg, ((ImcJUMP) jump).label);
+			BasicBlock target = cfg.block(label);
+			if ((target != null) && (target != block) && (target.stmts.size() == 2)
+					&& (target.jump() instanceof ImcCJUMP)) {
+				ImcCJUMP cjump = (ImcCJUMP) target.jump();
+				jump = new ImcCJUMP(cjump.cond, follow(cfg, cjump.trueLabel), follow(cfg, cjump.falseLabel));
+			} else
+				jump = new ImcJUMP(label);
+			block.stmts.set(block.stmts.size() - 1, jump);
+		} else {
+			ImcCJUMP cjump = (ImcCJUMP) jump;
+			FrmLabel trueLabel = follow(cfg, cjump.trueLabel);
+			FrmLabel falseLabel = follow(cfg, cjump.falseLabel);
+			block.stmts.set(block.stmts.size() - 1, new ImcCJUMP(cjump.cond, trueLabel, falseLabel));
+		}
+	}
+
+	/** Vrne koncni cilj zaporedja blokov, ki vsebujejo le skok. */
+	private FrmLabel follow(ControlFlowGraph cfg, FrmLabel label) {
+		HashSet<String> visited = new HashSet<String>();
+		BasicBlock block = cfg.block(label);
+		while ((block != null) && (block.stmts.size() == 2) && (block.jump() instanceof ImcJUMP)
+				&& visited.add(label.name())) {
+			label = ((ImcJUMP) block.jump()).label;
+			block = cfg.block(label);
+		}
+		return label;
+	}
+
+	/**
+	 * Vrne nerazvrscenega naslednika bloka, ki naj mu sledi v sledi. Prednost
+	 * ima cilj neizpolnjenega pogoja, razen ce se z njim funkcija konca (npr.
+	 * izhod iz zanke), saj je tak blok bolje postaviti na konec kode.
+	 */
+	private BasicBlock next(ControlFlowGraph cfg, BasicBlock block, HashSet<BasicBlock> scheduled) {
+		BasicBlock fallback = null;
+		FrmLabel[] successors = block.successors();
+		for (int succ = successors.length - 1; succ >= 0; succ--) {
+			BasicBlock next = cfg.block(successors[succ]);
+			if ((next == null) || scheduled.contains(next)) continue;
+			if (!returns(cfg, next) || (block.jump() instanceof ImcJUMP))
+				return next;
+			if (fallback == null) fallback = next;
+		}
+		return fallback;
+	}
+
+	/** Ali blok skoci na konec funkcije. */
+	private boolean returns(ControlFlowGraph cfg, BasicBlock block) {
+		return (block.jump() instanceof ImcJUMP) && (cfg.block(((ImcJUMP) block.jump()).label) == null);
+	}
+
+	/** Vrne kodo razvrscenih blokov brez odvecnih skokov in label. */
+	private ImcSEQ layout(ControlFlowGraph cfg) {
+		ImcSEQ code = new ImcSEQ();
+		HashSet<String> targets = new HashSet<String>();
+		for (int b = 0; b < cfg.blocks.size(); b++) {
+			BasicBlock block = cfg.blocks.get(b);
+			FrmLabel next = (b + 1 < cfg.blocks.size()) ? cfg.blocks.get(b + 1).label : cfg.exit;
+
+			Iterator<ImcStmt> stmts = block.stmts.iterator();
+			for (int s = 0; s < block.stmts.size() - 1; s++)
+				code.stmts.add(stmts.next());
+
+			ImcStmt jump = block.jump();
+			if (jump instanceof ImcJUMP) {
+				FrmLabel label = ((ImcJUMP) jump).label;
+				if (label.name().equals(next.name())) {
+					removedJumps++;
+					continue;
+				}
+				targets.add(label.name());
+				code.stmts.add(jump);
+			} else {
+				ImcCJUMP cjump = (ImcCJUMP) jump;
+				if (cjump.trueLabel.name().equals(cjump.falseLabel.name())) {
+					// both ways lead to the same block
+					jump = new ImcJUMP(cjump.trueLabel);
+					if (cjump.trueLabel.name().equals(next.name())) {
+						removedJumps++;
+						continue;
+					}
+				} else if (cjump.trueLabel.name().equals(next.name()) && (cjump.cond instanceof ImcBINOP)
+						&& (ConstFolder.negate(((ImcBINOP) cjump.cond).op) >= 0)) {
+					// fall through to the true target by inverting the condition
+					ImcBINOP cond = (ImcBINOP) cjump.cond;
+					jump = new ImcCJUMP(new ImcBINOP(ConstFolder.negate(cond.op), cond.limc, cond.rimc),
+							cjump.falseLabel, cjump.trueLabel);
+				}
+				if (jump instanceof ImcCJUMP) {
+					targets.add(((ImcCJUMP) jump).trueLabel.name());
+					targets.add(((ImcCJUMP) jump).falseLabel.name());
+				} else
+					targets.add(((ImcJUMP) jump).label.name());
+				code.stmts.add(jump);
+			}
+		}
+		code.stmts.add(new ImcLABEL(cfg.exit));
+
+		// labels that no jump refers to
+		Iterator<ImcStmt> stmts = code.stmts.iterator();
+		while (stmts.hasNext()) {
+			ImcStmt stmt = stmts.next();
+			if ((stmt instanceof ImcLABEL) && !targets.contains(((ImcLABEL) stmt).label.name())) {
+				stmts.remove();
+				removedLabels++;
+			}
+		}
+		return code;
+	}
+
+}
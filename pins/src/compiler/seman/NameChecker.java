@@ -5,7 +5,8 @@ import compiler.abstr.*;
 import compiler.abstr.tree.*;
 import compiler.frames.FrmDesc;
 import compiler.frames.FrmFrame;
-import compiler.frames.FrmLabel;
+import compiler.interpreter.Intrinsic;
+import compiler.interpreter.Intrinsics;
 import compiler.seman.type.SemAtomType;
 import compiler.seman.type.SemFunType;
 import compiler.seman.type.SemType;
@@ -22,55 +23,41 @@ public class NameChecker implements Visitor {
 
     public NameChecker() {
 
-        // putInt
-        String funName = "putInt";
-        Vector<AbsPar> parameters = new Vector<AbsPar>();
-        Vector<SemType> parameterTypes = new Vector<SemType>();
+        // descriptions left over from a previously compiled program
+        SymbTable.clear();
+        SymbDesc.clear();
+        FrmDesc.clear();
 
-        parameters.add(new AbsPar(null, "number", new AbsAtomType(null, AbsAtomType.INT)));
-        parameterTypes.add(new SemAtomType(SemAtomType.INT));
+        // predefined functions
+        for (Intrinsic intrinsic : Intrinsics.all()) {
+            Vector<AbsPar> parameters = new Vector<AbsPar>();
+            Vector<SemType> parameterTypes = new Vector<SemType>();
 
+            for (int par = 0; par < intrinsic.parTypes.length; par++) {
+                parameters.add(new AbsPar(null, "arg" + par, new AbsAtomType(null, intrinsic.parTypes[par])));
+                parameterTypes.add(new SemAtomType(intrinsic.parTypes[par]));
+            }
 
-        AbsFunDef funDef = new AbsFunDef(null, funName, parameters, new AbsAtomType(null, AbsAtomType.INT), null);
-
-        try {
-            SymbTable.ins(funName, funDef);
-        } catch (SemIllegalInsertException e1) {
-            e1.printStackTrace();
-        }
-
-        SymbDesc.setType(funDef, new SemFunType(parameterTypes, new SemAtomType(SemAtomType.VOID)));
-        SymbDesc.setType(funDef.par(0), new SemAtomType(SemAtomType.INT));
-        SymbDesc.setScope(funDef, 0);
-        FrmFrame frame = new FrmFrame(funDef, 0);
-        frame.numPars = 2;
-        frame.sizePars = 8;
-        frame.label = FrmLabel.newLabel(funName);
-        FrmDesc.setFrame(funDef, frame);
-
-        // getInt
-        funName = "getInt";
-        parameters = new Vector<AbsPar>();
-        parameterTypes = new Vector<SemType>();
-
-        parameters.add(new AbsPar(null, "number", new AbsAtomType(null, AbsAtomType.INT)));
-        parameterTypes.add(new SemAtomType(SemAtomType.INT));
+            // there is no void atom type in the abstract syntax tree
+            int resultType = intrinsic.resultType == SemAtomType.VOID ? AbsAtomType.INT : intrinsic.resultType;
+            AbsFunDef funDef = new AbsFunDef(null, intrinsic.name, parameters, new AbsAtomType(null, resultType), null);
 
+            try {
+                SymbTable.ins(intrinsic.name, funDef);
+            } catch (SemIllegalInsertException e1) {
+                e1.printStackTrace();
+            }
 
-        funDef = new AbsFunDef(null, funName, parameters, new AbsAtomType(null, AbsAtomType.INT), null);
-        try {
-            SymbTable.ins(funName, funDef);
-        } catch (SemIllegalInsertException e1) {
-            e1.printStackTrace();
+            SymbDesc.setType(funDef, new SemFunType(parameterTypes, new SemAtomType(intrinsic.resultType)));
+            for (int par = 0; par < intrinsic.parTypes.length; par++)
+                SymbDesc.setType(funDef.par(par), new SemAtomType(intrinsic.parTypes[par]));
+            SymbDesc.setScope(funDef, 0);
+            FrmFrame frame = new FrmFrame(funDef, 0);
+            frame.numPars = 1 + intrinsic.parTypes.length;
+            frame.sizePars = 4 * frame.numPars;
+            frame.label = intrinsic.label;
+            FrmDesc.setFrame(funDef, frame);
         }
-        SymbDesc.setType(funDef, new SemFunType(parameterTypes, new SemAtomType(SemAtomType.INT)));
-        SymbDesc.setType(funDef.par(0), new SemAtomType(SemAtomType.INT));
-        SymbDesc.setScope(funDef, 0);
-        frame = new FrmFrame(funDef, 0);
-        frame.numPars = 2;
-        frame.sizePars = 8;
-        frame.label = FrmLabel.newLabel(funName);
-        FrmDesc.setFrame(funDef, frame);
 
     }
     @Override
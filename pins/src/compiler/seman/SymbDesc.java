@@ -93,4 +93,13 @@ public class SymbDesc {
 		return typ;
 	}
 
+	/**
+	 * Odstrani vse opise (pred obdelavo novega programa).
+	 */
+	public static void clear() {
+		scope.clear();
+		nameDef.clear();
+		type.clear();
+	}
+
 }
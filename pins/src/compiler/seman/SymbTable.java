@@ -109,4 +109,13 @@ public class SymbTable {
 		return allNameDefs.getFirst();
 	}
 
+	/**
+	 * Odstrani vse definicije in preide na nivo gnezdenja 0 (pred obdelavo
+	 * novega programa).
+	 */
+	public static void clear() {
+		mapping.clear();
+		scope = 0;
+	}
+
 }